@@ -0,0 +1,68 @@
+package solution;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+/**
+ * One of the sample datasets in ./data the benchmarks are run on, by the name given to each benchmark's dataset parameter.
+ * The data directory is taken from the benchmarks.data system property, which the Gradle build sets
+ */
+class Dataset {
+
+	final Path aircraft;
+	final Path crew;
+	final Path passengerNumbers;
+	final Path routes;
+	final LocalDate startDate;
+	final LocalDate endDate;
+
+	private Dataset(String prefix, String passengerNumbers, LocalDate startDate, LocalDate endDate) {
+		Path directory = Paths.get(System.getProperty("benchmarks.data", "./data"));
+		this.aircraft = directory.resolve(prefix + "aircraft.csv");
+		this.crew = directory.resolve(prefix + "crew.json");
+		this.passengerNumbers = directory.resolve(passengerNumbers);
+		this.routes = directory.resolve(prefix + "routes.xml");
+		this.startDate = startDate;
+		this.endDate = endDate;
+	}
+
+	/**
+	 * Returns the dataset with the given name
+	 * @param name mini, schedule or full
+	 * @throws IllegalStateException if any of its files is missing, so the benchmark fails rather than measuring nothing
+	 */
+	static Dataset named(String name) {
+		Dataset dataset;
+		switch (name) {
+		case "mini":
+			dataset = new Dataset("mini_", "mini_passengers.db", LocalDate.parse("2020-07-01"), LocalDate.parse("2020-08-26"));
+			break;
+		case "schedule":
+			dataset = new Dataset("schedule_", "schedule_passengers.db", LocalDate.parse("2020-07-01"), LocalDate.parse("2020-07-08"));
+			break;
+		case "full":
+			dataset = new Dataset("", "passengernumbers.db", LocalDate.parse("2020-07-01"), LocalDate.parse("2020-08-31"));
+			break;
+		default:
+			throw new IllegalArgumentException("No dataset called " + name);
+		}
+		for (Path path : new Path[] { dataset.aircraft, dataset.crew, dataset.passengerNumbers, dataset.routes }) {
+			if (!Files.exists(path)) {
+				throw new IllegalStateException("The " + name + " dataset has no " + path);
+			}
+		}
+		return dataset;
+	}
+
+	/**
+	 * Returns every date from the start date to the end date, inclusive
+	 */
+	LocalDate[] dates() {
+		LocalDate[] dates = new LocalDate[(int) (endDate.toEpochDay() - startDate.toEpochDay()) + 1];
+		for (int i = 0; i < dates.length; i++) {
+			dates[i] = startDate.plusDays(i);
+		}
+		return dates;
+	}
+}
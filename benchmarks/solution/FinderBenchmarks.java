@@ -0,0 +1,122 @@
+package solution;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+import baseclasses.Route;
+
+/**
+ * Measures the DAOs' find methods on a loaded dataset, each benchmark asking about every flight number,
+ * airport, type code, tail code or date the dataset has
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FinderBenchmarks {
+
+	@Param({ "mini", "schedule", "full" })
+	public String dataset;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO numbers;
+
+	private int[] flightNumbers;
+	private String[] airports;
+	private String[] typeCodes;
+	private String[] tailCodes;
+	private LocalDate[] dates;
+
+	@Setup
+	public void setUp() throws DataLoadingException {
+		Dataset data = Dataset.named(dataset);
+		aircraft = new AircraftDAO();
+		aircraft.loadAircraftData(data.aircraft);
+		crew = new CrewDAO();
+		crew.loadCrewData(data.crew);
+		routes = new RouteDAO();
+		routes.loadRouteData(data.routes);
+		numbers = new PassengerNumbersDAO();
+		numbers.loadPassengerNumbersData(data.passengerNumbers);
+
+		flightNumbers = routes.getAllRoutes().stream().mapToInt(Route::getFlightNumber).toArray();
+		airports = routes.getAllRoutes().stream().map(Route::getDepartureAirportCode).toArray(String[]::new);
+		typeCodes = aircraft.getAllAircraft().stream().map(Aircraft::getTypeCode).toArray(String[]::new);
+		tailCodes = aircraft.getAllAircraft().stream().map(Aircraft::getTailCode).toArray(String[]::new);
+		dates = data.dates();
+	}
+
+	@TearDown
+	public void tearDown() {
+		numbers.reset();
+	}
+
+	@Benchmark
+	public long getPassengerNumbersFor() {
+		long total = 0;
+		for (LocalDate date : dates) {
+			for (int flightNumber : flightNumbers) {
+				total += numbers.getPassengerNumbersFor(flightNumber, date);
+			}
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long findAircraft() {
+		long total = 0;
+		for (int seats = 0; seats < 400; seats += 10) {
+			total += aircraft.findAircraftBySeats(seats).size();
+		}
+		for (String typeCode : typeCodes) {
+			total += aircraft.findAircraftByType(typeCode).size();
+		}
+		for (String airport : airports) {
+			total += aircraft.findAircraftByStartingPosition(airport).size();
+		}
+		for (String tailCode : tailCodes) {
+			total += aircraft.findAircraftByTailCode(tailCode).getSeats();
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long findCrew() {
+		long total = 0;
+		for (String airport : airports) {
+			total += crew.findPilotsByHomeBase(airport).size() + crew.findCabinCrewByHomeBase(airport).size();
+			for (String typeCode : typeCodes) {
+				total += crew.findPilotsByHomeBaseAndTypeRating(typeCode, airport).size();
+				total += crew.findCabinCrewByHomeBaseAndTypeRating(typeCode, airport).size();
+			}
+		}
+		for (String typeCode : typeCodes) {
+			total += crew.findPilotsByTypeRating(typeCode).size() + crew.findCabinCrewByTypeRating(typeCode).size();
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long findRoutes() {
+		long total = 0;
+		for (LocalDate date : dates) {
+			total += routes.findRoutesbyDate(date).size();
+		}
+		for (String airport : airports) {
+			total += routes.findRoutesDepartingAirport(airport).size() + routes.findRoutesByDepartureAirportAndDay(airport, "Tue").size();
+		}
+		return total;
+	}
+}
@@ -0,0 +1,60 @@
+package solution;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * Measures each DAO loading its file of a dataset into a new, empty DAO
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoaderBenchmarks {
+
+	@Param({ "mini", "schedule", "full" })
+	public String dataset;
+
+	private Dataset data;
+
+	@Setup
+	public void setUp() {
+		data = Dataset.named(dataset);
+	}
+
+	@Benchmark
+	public AircraftDAO loadAircraftData() throws DataLoadingException {
+		AircraftDAO aircraft = new AircraftDAO();
+		aircraft.loadAircraftData(data.aircraft);
+		return aircraft;
+	}
+
+	@Benchmark
+	public CrewDAO loadCrewData() throws DataLoadingException {
+		CrewDAO crew = new CrewDAO();
+		crew.loadCrewData(data.crew);
+		return crew;
+	}
+
+	@Benchmark
+	public RouteDAO loadRouteData() throws DataLoadingException {
+		RouteDAO routes = new RouteDAO();
+		routes.loadRouteData(data.routes);
+		return routes;
+	}
+
+	@Benchmark
+	public PassengerNumbersDAO loadPassengerNumbersData() throws DataLoadingException {
+		PassengerNumbersDAO numbers = new PassengerNumbersDAO();
+		numbers.loadPassengerNumbersData(data.passengerNumbers);
+		return numbers;
+	}
+}
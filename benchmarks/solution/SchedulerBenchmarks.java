@@ -0,0 +1,71 @@
+package solution;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import baseclasses.DataLoadingException;
+import baseclasses.Schedule;
+
+/**
+ * Measures Scheduler.generateSchedule on a loaded dataset, in order, in 7 day blocks and split by hub.
+ * The blocks and hubs are scheduled on the common fork-join pool, which the gc profiler counts as well
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchedulerBenchmarks {
+
+	@Param({ "mini", "schedule", "full" })
+	public String dataset;
+
+	private Dataset data;
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO numbers;
+
+	@Setup
+	public void setUp() throws DataLoadingException {
+		data = Dataset.named(dataset);
+		aircraft = new AircraftDAO();
+		aircraft.loadAircraftData(data.aircraft);
+		crew = new CrewDAO();
+		crew.loadCrewData(data.crew);
+		routes = new RouteDAO();
+		routes.loadRouteData(data.routes);
+		numbers = new PassengerNumbersDAO();
+		numbers.loadPassengerNumbersData(data.passengerNumbers);
+	}
+
+	@TearDown
+	public void tearDown() {
+		numbers.reset();
+	}
+
+	@Benchmark
+	public Schedule generateSchedule() {
+		return new Scheduler().generateSchedule(aircraft, crew, routes, numbers, data.startDate, data.endDate);
+	}
+
+	@Benchmark
+	public Schedule generateScheduleInBlocks() {
+		Scheduler scheduler = new Scheduler();
+		scheduler.setBlockDays(7);
+		return scheduler.generateSchedule(aircraft, crew, routes, numbers, data.startDate, data.endDate);
+	}
+
+	@Benchmark
+	public Schedule generateScheduleByHub() {
+		Scheduler scheduler = new Scheduler();
+		scheduler.setSplitByHub(true);
+		return scheduler.generateSchedule(aircraft, crew, routes, numbers, data.startDate, data.endDate);
+	}
+}
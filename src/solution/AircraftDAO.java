@@ -1,10 +1,16 @@
 package solution;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import baseclasses.Aircraft;
 import baseclasses.Aircraft.Manufacturer;
@@ -18,45 +24,67 @@ import baseclasses.IAircraftDAO;
  */
 public class AircraftDAO implements IAircraftDAO {
 	
+	private static final int FIELDS = 7;
+	
 	private List<Aircraft> planes = new ArrayList<>();
+	private Map<String, String> vocabulary = new HashMap<>();
+	private Map<String, Manufacturer> manufacturers = new HashMap<>();
+	private byte[] scratch = new byte[64];
+	//volatile, and read once per lookup, as metrics may be enabled or disabled while other threads are looking aircraft up
+	private volatile LookupMetrics metrics = null;
+	
+	//indexes over the planes above: by tail code, by type code, and ordered by number of seats
+	private Map<String, Aircraft> aircraftByTailCode = new HashMap<>();
+	private Map<String, List<Aircraft>> aircraftByType = new HashMap<>();
+	private List<Aircraft> aircraftBySeats = new ArrayList<>();
+	private int[] seatCounts = new int[0];
 	
 	/**
 	 * Loads the aircraft data from the specified file, adding them to the currently loaded aircraft
 	 * Multiple calls to this function, perhaps on different files, would thus be cumulative
 	 * @param path A Path pointing to the file from which data could be loaded
 	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
-     *
-	 * Initially, this contains some starter code to help you get started in reading the CSV file...
+	 *
+	 * The file is memory-mapped and scanned byte by byte for delimiters, so no line Strings or split arrays are created
 	 */
 	@Override
 	public void loadAircraftData(Path path) throws DataLoadingException {	
-		try {
-			//open the file
-			BufferedReader reader = Files.newBufferedReader(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer csv = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int limit = csv.limit();
 			
-			//read the file line by line
-			String line = "";
+			int[] fieldStarts = new int[FIELDS];
+			int[] fieldEnds = new int[FIELDS];
 			
 			//skip the first line of the file - headers
-			reader.readLine();
-
-			while( (line = reader.readLine()) != null) {
-				//each line has fields separated by commas, split into an array of fields
-				String[] fields = line.split(",");
-				// Create an aircraft object for each aircraft in the file
-				Aircraft aircraft = new Aircraft();
-				aircraft.setTailCode(fields[0]);
-				aircraft.setTypeCode(fields[1]);
-				aircraft.setManufacturer(Manufacturer.valueOf(fields[2].toUpperCase()));
-				aircraft.setModel(fields[3]);
-				aircraft.setSeats(Integer.parseInt(fields[4]));
-				aircraft.setCabinCrewRequired(Integer.parseInt(fields[5]));
-				aircraft.setStartingPosition(fields[6]);
-				// Add the aircraft to the planes Array list.
-				planes.add(aircraft);
-							
-			}			
-			reader.close();
+			int position = endOfLine(csv, 0) + 1;
+			
+			while (position < limit) {
+				int lineEnd = endOfLine(csv, position);
+				int next = lineEnd + 1;
+				if (lineEnd > position && csv.get(lineEnd - 1) == '\r') {
+					lineEnd--;
+				}
+				
+				if (lineEnd > position) {
+					//each line has fields separated by commas; note where each one starts and ends
+					findFields(csv, position, lineEnd, fieldStarts, fieldEnds);
+					
+					// Create an aircraft object for each aircraft in the file
+					Aircraft aircraft = new Aircraft();
+					aircraft.setTailCode(text(csv, fieldStarts[0], fieldEnds[0]));
+					aircraft.setTypeCode(vocabulary(csv, fieldStarts[1], fieldEnds[1]));
+					aircraft.setManufacturer(manufacturer(vocabulary(csv, fieldStarts[2], fieldEnds[2])));
+					aircraft.setModel(text(csv, fieldStarts[3], fieldEnds[3]));
+					aircraft.setSeats(number(csv, fieldStarts[4], fieldEnds[4]));
+					aircraft.setCabinCrewRequired(number(csv, fieldStarts[5], fieldEnds[5]));
+					aircraft.setStartingPosition(vocabulary(csv, fieldStarts[6], fieldEnds[6]));
+					// Add the aircraft to the planes Array list, and to the indexes
+					addAircraft(aircraft);
+				}
+				
+				position = next;
+			}
 
 		} catch (IOException ioe) { 
 			//There was a problem reading the file
@@ -65,27 +93,158 @@ public class AircraftDAO implements IAircraftDAO {
 			System.out.println("Garbage file detected");
 			throw new DataLoadingException(iae);
 			
+		} finally {
+			//whatever was loaded before any error is kept, so the seat order must include it
+			sortBySeats();
 		}
 
 	}
 	
+	/**
+	 * Adds every aircraft loaded by another AircraftDAO to this one, as if its files had been loaded here
+	 * @param other the AircraftDAO to copy aircraft from
+	 */
+	void addAll(AircraftDAO other) {
+		addAll(other.planes);
+	}
+	
+	/**
+	 * Adds the given aircraft to this AircraftDAO, as if they had been loaded from a file
+	 * @param aircraft the aircraft to add
+	 */
+	void addAll(List<Aircraft> aircraft) {
+		for (Aircraft plane : aircraft) {
+			addAircraft(plane);
+		}
+		sortBySeats();
+	}
+	
+	private void addAircraft(Aircraft aircraft) {
+		planes.add(aircraft);
+		aircraftByTailCode.put(aircraft.getTailCode(), aircraft);
+		aircraftByType.computeIfAbsent(aircraft.getTypeCode(), t -> new ArrayList<>()).add(aircraft);
+	}
+	
+	private void sortBySeats() {
+		//a stable sort, so aircraft with the same number of seats stay in the order they were loaded
+		List<Aircraft> sorted = new ArrayList<>(planes);
+		sorted.sort(Comparator.comparingInt(Aircraft::getSeats));
+		
+		int[] seats = new int[sorted.size()];
+		for (int i = 0; i < seats.length; i++) {
+			seats[i] = sorted.get(i).getSeats();
+		}
+		aircraftBySeats = sorted;
+		seatCounts = seats;
+	}
+	
+	/*
+	 * Returns the position in aircraftBySeats of the first aircraft with at least this many seats
+	 */
+	private int ceilingIndex(int seats) {
+		int low = 0;
+		int high = seatCounts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (seatCounts[mid] < seats) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private static int endOfLine(ByteBuffer csv, int from) {
+		int limit = csv.limit();
+		while (from < limit && csv.get(from) != '\n') {
+			from++;
+		}
+		return from;
+	}
+	
+	private static void findFields(ByteBuffer csv, int from, int to, int[] fieldStarts, int[] fieldEnds) {
+		int field = 0;
+		fieldStarts[0] = from;
+		for (int i = from; i < to && field < FIELDS; i++) {
+			if (csv.get(i) == ',') {
+				fieldEnds[field] = i;
+				field++;
+				if (field < FIELDS) {
+					fieldStarts[field] = i + 1;
+				}
+			}
+		}
+		if (field < FIELDS - 1) {
+			throw new IllegalArgumentException("Expected " + FIELDS + " fields but found " + (field + 1));
+		}
+		if (field == FIELDS - 1) {
+			fieldEnds[field] = to;
+		}
+	}
+	
+	private String text(ByteBuffer csv, int from, int to) {
+		int length = to - from;
+		if (scratch.length < length) {
+			scratch = new byte[length];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = csv.get(from + i);
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	/*
+	 * Type codes, manufacturers and airports come from a small set of values, so every aircraft shares one copy of each
+	 */
+	private String vocabulary(ByteBuffer csv, int from, int to) {
+		String value = text(csv, from, to);
+		String shared = vocabulary.putIfAbsent(value, value);
+		return shared == null ? value : shared;
+	}
+	
+	private Manufacturer manufacturer(String name) {
+		Manufacturer manufacturer = manufacturers.get(name);
+		if (manufacturer == null) {
+			manufacturer = Manufacturer.valueOf(name.toUpperCase());
+			manufacturers.put(name, manufacturer);
+		}
+		return manufacturer;
+	}
+	
+	private static int number(ByteBuffer csv, int from, int to) {
+		boolean negative = from < to && csv.get(from) == '-';
+		int i = (from < to && (csv.get(from) == '-' || csv.get(from) == '+')) ? from + 1 : from;
+		if (i == to) {
+			throw new NumberFormatException("Expected a number but found an empty field");
+		}
+		
+		int value = 0;
+		for (; i < to; i++) {
+			int digit = csv.get(i) - '0';
+			if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+				throw new NumberFormatException("Not a valid number at byte " + i);
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+	
 	/**
 	 * Returns a list of all the loaded Aircraft with at least the specified number of seats
 	 * @param seats the number of seats required
-	 * @return a List of all the loaded aircraft with at least this many seats
+	 * @return a List of all the loaded aircraft with at least this many seats, smallest first
 	 */
 	@Override
 	public List<Aircraft> findAircraftBySeats(int seats) {
+		LookupMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 		
-		List<Aircraft> aircraft = new ArrayList<>();
+		List<Aircraft> aircraft = Collections.unmodifiableList(aircraftBySeats.subList(ceilingIndex(seats), aircraftBySeats.size()));
 		
-		for (Aircraft plane : planes) {
-			if (plane.getSeats() >= seats) {
-				aircraft.add(plane);
-				System.out.println(plane.getTailCode()); 
-			}
+		if (metrics != null) {
+			metrics.record("findAircraftBySeats", aircraft.size(), start);
 		}
-		
 		return aircraft;
 	}
 
@@ -96,16 +255,20 @@ public class AircraftDAO implements IAircraftDAO {
 	 */
 	@Override
 	public List<Aircraft> findAircraftByStartingPosition(String startingPosition) {
+		LookupMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 
 		List<Aircraft> aircraft = new ArrayList<>();
 		
 		for (Aircraft plane : planes) {
 			if (plane.getStartingPosition().equals(startingPosition)) {
 				aircraft.add(plane);
-				System.out.println(plane.getTailCode()); 
 			}
 		}
 		
+		if (metrics != null) {
+			metrics.record("findAircraftByStartingPosition", aircraft.size(), start);
+		}
 		return aircraft;
 	}
 
@@ -116,16 +279,14 @@ public class AircraftDAO implements IAircraftDAO {
 	 */
 	@Override
 	public Aircraft findAircraftByTailCode(String tailCode) {
+		LookupMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 		
-		Aircraft aircraft = null;
+		Aircraft aircraft = aircraftByTailCode.get(tailCode);
 		
-		for (Aircraft plane : planes) {
-			if (plane.getTailCode().equals(tailCode)) {
-				aircraft = plane;
-				System.out.println(plane.getTailCode()); 
-			}
+		if (metrics != null) {
+			metrics.record("findAircraftByTailCode", aircraft == null ? 0 : 1, start);
 		}
-		
 		return aircraft;
 	}
 
@@ -136,19 +297,47 @@ public class AircraftDAO implements IAircraftDAO {
 	 */
 	@Override
 	public List<Aircraft> findAircraftByType(String typeCode) {
+		LookupMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 		
-		List<Aircraft> aircraft = new ArrayList<>();
+		List<Aircraft> aircraft = aircraftByType.containsKey(typeCode)
+				? Collections.unmodifiableList(aircraftByType.get(typeCode))
+				: Collections.emptyList();
 		
-		for (Aircraft plane : planes) {
-			if (plane.getTypeCode().equals(typeCode)) {
-				aircraft.add(plane);
-				System.out.println(plane.getTailCode()); 
-			}
+		if (metrics != null) {
+			metrics.record("findAircraftByType", aircraft.size(), start);
 		}
-		
 		return aircraft;
 	}
 
+	/**
+	 * Starts counting calls, results and time spent in the find methods. Nothing is measured until this is called
+	 * @return the metrics the find methods record into
+	 */
+	public synchronized LookupMetrics enableMetrics() {
+		LookupMetrics metrics = this.metrics;
+		if (metrics == null) {
+			metrics = new LookupMetrics();
+			this.metrics = metrics;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Stops measuring the find methods
+	 */
+	public synchronized void disableMetrics() {
+		metrics = null;
+	}
+
+	/**
+	 * Returns the metrics the find methods are recording into
+	 * @return the metrics, or null if they have not been enabled
+	 */
+	public LookupMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Returns a List of all the currently loaded aircraft
 	 * @return a List of all the currently loaded aircraft
@@ -173,5 +362,10 @@ public class AircraftDAO implements IAircraftDAO {
 	@Override
 	public void reset() {
 		planes = new ArrayList<>();
+		vocabulary = new HashMap<>();
+		aircraftByTailCode = new HashMap<>();
+		aircraftByType = new HashMap<>();
+		aircraftBySeats = new ArrayList<>();
+		seatCounts = new int[0];
 	}
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package solution;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import baseclasses.FlightInfo;
+
+/**
+ * The AvailabilityIndex keeps the busy intervals of every aircraft and crew member the scheduler
+ * has allocated, sorted by departure time, so that "is this resource free for this flight"
+ * can be answered with a binary search rather than a scan of all of its allocations.
+ * Its answers agree exactly with Schedule.hasConflict()
+ *
+ * Resources are looked up by identity, or, in an index created for a number of resources, by their dense int id
+ */
+class AvailabilityIndex {
+
+	private final Map<Object, BusyIntervals> busy = new IdentityHashMap<>();
+	private final BusyIntervals[] busyById;
+
+	/**
+	 * Creates an index that looks resources up by identity
+	 */
+	AvailabilityIndex() {
+		this(0);
+	}
+
+	/**
+	 * Creates an index that can also look resources up by an id below the given number
+	 * @param resources the number of resource ids
+	 */
+	AvailabilityIndex(int resources) {
+		busyById = new BusyIntervals[resources];
+	}
+
+	/**
+	 * Returns true if the resource has no allocation that Schedule.hasConflict() would treat as clashing with the flight
+	 * @param resource the aircraft, pilot or cabin crew member to check
+	 * @param flight the flight to check against
+	 * @return true if the resource is free for the flight
+	 */
+	boolean isFree(Object resource, FlightInfo flight) {
+		return isFree(resource, toSeconds(flight.getDepartureDateTime()), toSeconds(flight.getLandingDateTime()));
+	}
+
+	/**
+	 * Returns true if the resource has no allocation that Schedule.hasConflict() would treat as clashing with the interval
+	 * @param resource the aircraft, pilot or cabin crew member to check
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 * @return true if the resource is free for the interval
+	 */
+	boolean isFree(Object resource, long departure, long landing) {
+		BusyIntervals intervals = busy.get(resource);
+		return intervals == null || !intervals.conflictsWith(departure, landing);
+	}
+
+	/**
+	 * Returns true if the resource is free for the interval whichever order the two allocations are made in.
+	 * Schedule.hasConflict() is not symmetric: a flight departing with, or landing with, one already allocated
+	 * can be allowed one way round but not the other. This only allows intervals that are clear of every
+	 * allocation, or that exactly match one, so they can be replayed into a Schedule in any order
+	 * @param resource the aircraft, pilot or cabin crew member to check
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 * @return true if the resource is free for the interval in either order
+	 */
+	boolean isFreeInAnyOrder(Object resource, long departure, long landing) {
+		BusyIntervals intervals = busy.get(resource);
+		return intervals == null || !intervals.overlaps(departure, landing);
+	}
+
+	/**
+	 * Returns true if the resource with this id has no allocation that Schedule.hasConflict() would treat as clashing
+	 * with the interval
+	 * @param resource the id of the aircraft, pilot or cabin crew member to check
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 * @return true if the resource is free for the interval
+	 */
+	boolean isFree(int resource, long departure, long landing) {
+		BusyIntervals intervals = busyById[resource];
+		return intervals == null || !intervals.conflictsWith(departure, landing);
+	}
+
+	/**
+	 * Returns true if the resource with this id is free for the interval whichever order the two allocations are made in
+	 * @param resource the id of the aircraft, pilot or cabin crew member to check
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 * @return true if the resource is free for the interval in either order
+	 */
+	boolean isFreeInAnyOrder(int resource, long departure, long landing) {
+		BusyIntervals intervals = busyById[resource];
+		return intervals == null || !intervals.overlaps(departure, landing);
+	}
+
+	/**
+	 * Records that the resource with this id has been allocated to the interval
+	 * @param resource the id of the aircraft, pilot or cabin crew member allocated
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 */
+	void book(int resource, long departure, long landing) {
+		if (busyById[resource] == null) {
+			busyById[resource] = new BusyIntervals();
+		}
+		busyById[resource].add(departure, landing);
+	}
+
+	/**
+	 * Records that the resource has been allocated to the flight
+	 * @param resource the aircraft, pilot or cabin crew member allocated
+	 * @param flight the flight it has been allocated to
+	 */
+	void book(Object resource, FlightInfo flight) {
+		book(resource, toSeconds(flight.getDepartureDateTime()), toSeconds(flight.getLandingDateTime()));
+	}
+
+	/**
+	 * Records that the resource has been allocated to the interval
+	 * @param resource the aircraft, pilot or cabin crew member allocated
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 */
+	void book(Object resource, long departure, long landing) {
+		busy.computeIfAbsent(resource, r -> new BusyIntervals()).add(departure, landing);
+	}
+
+	/**
+	 * Removes one allocation of the resource to the flight, if there is one
+	 * @param resource the aircraft, pilot or cabin crew member to release
+	 * @param flight the flight it is no longer allocated to
+	 */
+	void release(Object resource, FlightInfo flight) {
+		release(resource, toSeconds(flight.getDepartureDateTime()), toSeconds(flight.getLandingDateTime()));
+	}
+
+	/**
+	 * Removes one allocation of the resource to the interval, if there is one
+	 * @param resource the aircraft, pilot or cabin crew member to release
+	 * @param departure the departure time of the flight, in epoch seconds
+	 * @param landing the landing time of the flight, in epoch seconds
+	 */
+	void release(Object resource, long departure, long landing) {
+		BusyIntervals intervals = busy.get(resource);
+		if (intervals != null) {
+			intervals.remove(departure, landing);
+		}
+	}
+
+	/**
+	 * Forgets every allocation
+	 */
+	void clear() {
+		busy.clear();
+		Arrays.fill(busyById, null);
+	}
+
+	static long toSeconds(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	/**
+	 * The allocations of a single resource, held as parallel arrays sorted by departure
+	 */
+	private static class BusyIntervals {
+
+		private long[] departures = new long[8];
+		private long[] landings = new long[8];
+		private int size = 0;
+		private long longestDuration = 0;
+
+		void add(long departure, long landing) {
+			if (size == departures.length) {
+				departures = Arrays.copyOf(departures, size * 2);
+				landings = Arrays.copyOf(landings, size * 2);
+			}
+
+			//allocations mostly arrive in date order, so this is nearly always an append
+			int position = size;
+			while (position > 0 && departures[position - 1] > departure) {
+				position--;
+			}
+			System.arraycopy(departures, position, departures, position + 1, size - position);
+			System.arraycopy(landings, position, landings, position + 1, size - position);
+			departures[position] = departure;
+			landings[position] = landing;
+			size++;
+
+			longestDuration = Math.max(longestDuration, landing - departure);
+		}
+
+		void remove(long departure, long landing) {
+			for (int i = firstDepartingAtOrAfter(departure); i < size && departures[i] == departure; i++) {
+				if (landings[i] == landing) {
+					System.arraycopy(departures, i + 1, departures, i, size - i - 1);
+					System.arraycopy(landings, i + 1, landings, i, size - i - 1);
+					size--;
+					return;
+				}
+			}
+		}
+
+		/*
+		 * Schedule.hasConflict() treats an existing allocation (d, l) as clashing with a flight (dep, land) if
+		 * dep < d < land, or dep < l < land, or d < dep && l > land. Every such allocation departs before
+		 * land and lands after dep, so only those departing in (dep - longestDuration, land) need checking
+		 */
+		boolean conflictsWith(long departure, long landing) {
+			int end = firstDepartingAtOrAfter(landing);
+			long earliest = departure - longestDuration;
+
+			for (int i = end - 1; i >= 0 && departures[i] >= earliest; i--) {
+				long d = departures[i];
+				long l = landings[i];
+				if ((d < landing && d > departure)
+						|| (l > departure && l < landing)
+						|| (d < departure && l > landing)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * Either way round, an allocation clashes exactly when the two open intervals overlap and are not identical
+		 */
+		boolean overlaps(long departure, long landing) {
+			int end = firstDepartingAtOrAfter(landing);
+			long earliest = departure - longestDuration;
+
+			for (int i = end - 1; i >= 0 && departures[i] >= earliest; i--) {
+				long d = departures[i];
+				long l = landings[i];
+				if (d < landing && l > departure && (d != departure || l != landing)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private int firstDepartingAtOrAfter(long time) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (departures[mid] < time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package solution;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The ConnectionPool keeps a fixed number of connections to one database open, and lends each to one thread at a time.
+ * Every connection keeps the statements prepared on it, so a query is only prepared once per connection
+ * however many times it is run. Borrowing waits while every connection is lent out
+ */
+class ConnectionPool implements AutoCloseable {
+
+	private final List<PooledConnection> all = new ArrayList<>();
+	private final BlockingQueue<PooledConnection> idle;
+	private volatile boolean closed;
+
+	/**
+	 * Opens the connections
+	 * @param url the JDBC url of the database
+	 * @param size the number of connections to open
+	 * @throws SQLException if any of them couldn't be opened, in which case those that were are closed again
+	 */
+	ConnectionPool(String url, int size) throws SQLException {
+		if (size < 1) {
+			throw new IllegalArgumentException("A pool needs at least one connection, not " + size);
+		}
+		idle = new ArrayBlockingQueue<>(size);
+		try {
+			for (int i = 0; i < size; i++) {
+				PooledConnection connection = new PooledConnection(DriverManager.getConnection(url));
+				all.add(connection);
+				idle.add(connection);
+			}
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Takes a connection out of the pool, waiting for one to be given back if they are all in use.
+	 * Every connection borrowed must be given back with giveBack(), in a finally block
+	 * @throws SQLException if the pool has been closed, or the thread was interrupted while waiting
+	 */
+	PooledConnection borrow() throws SQLException {
+		if (closed) {
+			throw new SQLException("The connection pool has been closed");
+		}
+		try {
+			return idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+	}
+
+	/**
+	 * Puts a borrowed connection back in the pool for the next thread
+	 */
+	void giveBack(PooledConnection connection) {
+		idle.add(connection);
+	}
+
+	/**
+	 * Closes every connection and the statements prepared on them. Connections still lent out are closed too,
+	 * so this should only be called once nothing is using the pool
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (PooledConnection connection : all) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * A connection in the pool, with the statements prepared on it
+	 */
+	static class PooledConnection {
+
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Returns the statement for the SQL, preparing it the first time it is asked for.
+		 * The statement stays open, so its parameters must be set again each time it is run
+		 */
+		PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			return statement;
+		}
+
+		private void close() {
+			//closing the connection closes its statements as well
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				//nothing more can be done with it either way
+			}
+			statements.clear();
+		}
+	}
+}
@@ -4,7 +4,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import baseclasses.CabinCrew;
 import baseclasses.Crew;
@@ -24,6 +27,14 @@ public class CrewDAO implements ICrewDAO {
 	private List<Pilot> pilots = new ArrayList<>();
 	private List<CabinCrew> cabinCrew = new ArrayList<>();
 	
+	//secondary indexes, kept in step with the lists above as crew are loaded
+	private Map<String, List<Pilot>> pilotsByHomeBase = new HashMap<>();
+	private Map<String, List<Pilot>> pilotsByTypeRating = new HashMap<>();
+	private Map<String, Map<String, List<Pilot>>> pilotsByHomeBaseAndTypeRating = new HashMap<>();
+	private Map<String, List<CabinCrew>> cabinCrewByHomeBase = new HashMap<>();
+	private Map<String, List<CabinCrew>> cabinCrewByTypeRating = new HashMap<>();
+	private Map<String, Map<String, List<CabinCrew>>> cabinCrewByHomeBaseAndTypeRating = new HashMap<>();
+	
 	/**
 	 * Loads the crew data from the specified file, adding them to the currently loaded crew
 	 * Multiple calls to this function, perhaps on different files, would thus be cumulative
@@ -32,64 +43,184 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public void loadCrewData(Path path) throws DataLoadingException {
-		try {
-			BufferedReader bufferedReader = Files.newBufferedReader(path);
-			String json ="";
-			String line = "";
-			while((line = bufferedReader.readLine()) != null)
-				json = json + line;
-			
-			JSONObject JCrew = new JSONObject(json);
-			
-			//set all pilots
+		try (BufferedReader bufferedReader = Files.newBufferedReader(path)) {
 			
-			JSONArray pilotArray = JCrew.getJSONArray("pilots");
+			//walk the file one token at a time, so that only one crew record is held as JSON at once
+			JSONTokener tokener = new JSONTokener(bufferedReader);
+			//nothing is added to the DAO until the whole file has parsed, so a file that fails partway through adds no crew
+			List<Pilot> loadedPilots = new ArrayList<>();
+			List<CabinCrew> loadedCabinCrew = new ArrayList<>();
+			boolean pilotsFound = false;
+			boolean cabinCrewFound = false;
 			
-			for(int i = 0; i<pilotArray.length(); i++) {
-				Pilot pilot = new Pilot();
-				pilot.setForename(getValueFromJSONObject("forename", pilotArray, i));
-				pilot.setSurname(getValueFromJSONObject("surname", pilotArray, i));
-				pilot.setRank(Rank.valueOf(getValueFromJSONObject("rank", pilotArray, i)));
-				pilot.setHomeBase(getValueFromJSONObject("homebase", pilotArray, i));
+			expect(tokener, '{');
+			char next = tokener.nextClean();
+			if (next != '}') {
+				tokener.back();
+				do {
+					String key = tokener.nextValue().toString();
+					expect(tokener, ':');
+					
+					if (key.equals("pilots") && !pilotsFound) {
+						pilotsFound = true;
+						for (JSONObject record = firstRecord(tokener); record != null; record = nextRecord(tokener)) {
+							loadedPilots.add(toPilot(record));
+						}
+					} else if (key.equals("cabincrew") && !cabinCrewFound) {
+						cabinCrewFound = true;
+						for (JSONObject record = firstRecord(tokener); record != null; record = nextRecord(tokener)) {
+							loadedCabinCrew.add(toCabinCrew(record));
+						}
+					} else if (key.equals("pilots") || key.equals("cabincrew")) {
+						throw tokener.syntaxError("Duplicate key \"" + key + "\"");
+					} else {
+						//anything else in the file is parsed but ignored
+						tokener.nextValue();
+					}
+					
+					next = tokener.nextClean();
+				} while (next == ',');
 				
-				JSONArray typeRatings = pilotArray.getJSONObject(i).getJSONArray("typeRatings");
-				for (Object type : typeRatings) {
-					pilot.setQualifiedFor(type.toString());
+				if (next != '}') {
+					throw tokener.syntaxError("Expected a ',' or '}'");
 				}
-				
-				pilots.add(pilot);
 			}
 			
-			//set all crew
-			
-			JSONArray crewArray = JCrew.getJSONArray("cabincrew");	
-			
-			for(int i = 0; i<crewArray.length(); i++) {
-				CabinCrew crew = new CabinCrew();
-				crew.setForename(getValueFromJSONObject("forename", crewArray, i));
-				crew.setSurname(getValueFromJSONObject("surname", crewArray, i));
-				crew.setHomeBase(getValueFromJSONObject("homebase", crewArray, i));
-				
-				JSONArray typeRatings = crewArray.getJSONObject(i).getJSONArray("typeRatings");
-				for (Object type : typeRatings) {
-					crew.setQualifiedFor(type.toString());
-				}
-				
-				cabinCrew.add(crew);
+			if (!pilotsFound || !cabinCrewFound) {
+				throw new JSONException("A crew file must contain both \"pilots\" and \"cabincrew\"");
 			}
 			
-		} catch (IOException e) {
-			e.printStackTrace();
-			throw new DataLoadingException();
-		} catch (JSONException je) {
-			throw new DataLoadingException();
+			addAll(loadedPilots, loadedCabinCrew);
+			
+		} catch (IOException | JSONException | IllegalArgumentException e) {
+			throw new DataLoadingException(e);
 		}
 		
+	}
+	
+	private Pilot toPilot(JSONObject record) {
+		Pilot pilot = new Pilot();
+		pilot.setForename(record.getString("forename"));
+		pilot.setSurname(record.getString("surname"));
+		pilot.setRank(Rank.valueOf(record.getString("rank")));
+		pilot.setHomeBase(record.getString("homebase"));
+		
+		for (Object type : record.getJSONArray("typeRatings")) {
+			pilot.setQualifiedFor(type.toString());
+		}
+		return pilot;
+	}
+	
+	private CabinCrew toCabinCrew(JSONObject record) {
+		CabinCrew crew = new CabinCrew();
+		crew.setForename(record.getString("forename"));
+		crew.setSurname(record.getString("surname"));
+		crew.setHomeBase(record.getString("homebase"));
 		
+		for (Object type : record.getJSONArray("typeRatings")) {
+			crew.setQualifiedFor(type.toString());
+		}
+		return crew;
+	}
+	
+	/*
+	 * Reads the opening '[' of an array of crew records, then its first record, or null if the array is empty
+	 */
+	private static JSONObject firstRecord(JSONTokener tokener) {
+		expect(tokener, '[');
+		if (tokener.nextClean() == ']') {
+			return null;
+		}
+		tokener.back();
+		return readRecord(tokener);
+	}
+	
+	/*
+	 * Reads the next record of an array of crew records, or null once the closing ']' is reached
+	 */
+	private static JSONObject nextRecord(JSONTokener tokener) {
+		switch (tokener.nextClean()) {
+		case ',':
+			return readRecord(tokener);
+		case ']':
+			return null;
+		default:
+			throw tokener.syntaxError("Expected a ',' or ']'");
+		}
+	}
+	
+	private static JSONObject readRecord(JSONTokener tokener) {
+		Object record = tokener.nextValue();
+		if (!(record instanceof JSONObject)) {
+			throw tokener.syntaxError("Expected a crew record");
+		}
+		return (JSONObject) record;
+	}
+	
+	private static void expect(JSONTokener tokener, char expected) {
+		if (tokener.nextClean() != expected) {
+			throw tokener.syntaxError("Expected a '" + expected + "'");
+		}
+	}
+	
+	/**
+	 * Adds every pilot and cabin crew member loaded by another CrewDAO to this one, as if its files had been loaded here
+	 * @param other the CrewDAO to copy crew from
+	 */
+	void addAll(CrewDAO other) {
+		addAll(other.pilots, other.cabinCrew);
+	}
+	
+	/**
+	 * Adds the given pilots and cabin crew to this CrewDAO, as if they had been loaded from a file
+	 * @param pilots the pilots to add
+	 * @param cabinCrew the cabin crew to add
+	 */
+	void addAll(List<Pilot> pilots, List<CabinCrew> cabinCrew) {
+		for (Pilot pilot : pilots) {
+			addPilot(pilot);
+		}
+		for (CabinCrew crew : cabinCrew) {
+			addCabinCrew(crew);
+		}
 	}
 	
-	private String getValueFromJSONObject(String key, JSONArray array, int i) {
-		return array.getJSONObject(i).getString(key);
+	private void addPilot(Pilot pilot) {
+		pilots.add(pilot);
+		addToIndex(pilotsByHomeBase, pilot.getHomeBase(), pilot);
+		Map<String, List<Pilot>> byTypeRating = pilotsByHomeBaseAndTypeRating.computeIfAbsent(pilot.getHomeBase(), b -> new HashMap<>());
+		for (String typeCode : pilot.getTypeRatings()) {
+			addToIndex(pilotsByTypeRating, typeCode, pilot);
+			addToIndex(byTypeRating, typeCode, pilot);
+		}
+	}
+	
+	private void addCabinCrew(CabinCrew crew) {
+		cabinCrew.add(crew);
+		addToIndex(cabinCrewByHomeBase, crew.getHomeBase(), crew);
+		Map<String, List<CabinCrew>> byTypeRating = cabinCrewByHomeBaseAndTypeRating.computeIfAbsent(crew.getHomeBase(), b -> new HashMap<>());
+		for (String typeCode : crew.getTypeRatings()) {
+			addToIndex(cabinCrewByTypeRating, typeCode, crew);
+			addToIndex(byTypeRating, typeCode, crew);
+		}
+	}
+	
+	private static <T extends Crew> void addToIndex(Map<String, List<T>> index, String key, T person) {
+		List<T> crew = index.computeIfAbsent(key, k -> new ArrayList<>());
+		//someone listed twice with the same type rating should still only be found once
+		if (crew.isEmpty() || crew.get(crew.size() - 1) != person) {
+			crew.add(person);
+		}
+	}
+	
+	private static <T extends Crew> List<T> lookup(Map<String, List<T>> index, String key) {
+		List<T> crew = index.get(key);
+		return crew == null ? Collections.emptyList() : Collections.unmodifiableList(crew);
+	}
+	
+	private static <T extends Crew> List<T> lookup(Map<String, Map<String, List<T>>> index, String homeBase, String typeCode) {
+		Map<String, List<T>> byTypeRating = index.get(homeBase);
+		return byTypeRating == null ? Collections.emptyList() : lookup(byTypeRating, typeCode);
 	}
 	
 	/**
@@ -99,16 +230,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByHomeBase(String airportCode) {
-
-		List<CabinCrew> crew = new ArrayList<>();
-		
-		for(CabinCrew person : cabinCrew) {
-			if(person.getHomeBase().equals(airportCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(cabinCrewByHomeBase, airportCode);
 	}
 
 	/**
@@ -119,15 +241,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByHomeBaseAndTypeRating(String typeCode, String airportCode) {
-		List<CabinCrew> crew = new ArrayList<>();
-		
-		for(CabinCrew person : cabinCrew) {
-			if(person.getHomeBase().equals(airportCode) && person.getTypeRatings().contains(typeCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(cabinCrewByHomeBaseAndTypeRating, airportCode, typeCode);
 	}
 
 	/**
@@ -137,15 +251,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByTypeRating(String typeCode) {
-		List<CabinCrew> crew = new ArrayList<>();
-		
-		for(CabinCrew person : cabinCrew) {
-			if(person.getTypeRatings().contains(typeCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(cabinCrewByTypeRating, typeCode);
 	}
 
 	/**
@@ -155,15 +261,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByHomeBase(String airportCode) {
-		List<Pilot> crew = new ArrayList<>();
-		
-		for(Pilot person : pilots) {
-			if(person.getHomeBase().equals(airportCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(pilotsByHomeBase, airportCode);
 	}
 
 	/**
@@ -174,15 +272,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByHomeBaseAndTypeRating(String typeCode, String airportCode) {
-		List<Pilot> crew = new ArrayList<>();
-		
-		for(Pilot person : pilots) {
-			if(person.getHomeBase().equals(airportCode) && person.getTypeRatings().contains(typeCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(pilotsByHomeBaseAndTypeRating, airportCode, typeCode);
 	}
 
 	/**
@@ -192,15 +282,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByTypeRating(String typeCode) {
-		List<Pilot> crew = new ArrayList<>();
-		
-		for(Pilot person : pilots) {
-			if(person.getTypeRatings().contains(typeCode)) {
-				crew.add(person);
-			}
-		}
-		
-		return crew;
+		return lookup(pilotsByTypeRating, typeCode);
 	}
 
 	/**
@@ -264,6 +346,12 @@ public class CrewDAO implements ICrewDAO {
 	public void reset() {
 		pilots = new ArrayList<>();
 		cabinCrew = new ArrayList<>();
+		pilotsByHomeBase = new HashMap<>();
+		pilotsByTypeRating = new HashMap<>();
+		pilotsByHomeBaseAndTypeRating = new HashMap<>();
+		cabinCrewByHomeBase = new HashMap<>();
+		cabinCrewByTypeRating = new HashMap<>();
+		cabinCrewByHomeBaseAndTypeRating = new HashMap<>();
 	}
 
 }
@@ -0,0 +1,269 @@
+package solution;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.json.JSONWriter;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * This class writes a synthetic dataset, in the same formats as the files in ./data, at a multiple of their size.
+ * Every aircraft, crew member and route in the full sample data is copied once per multiple, with tail codes,
+ * surnames and flight numbers made unique per copy, so the airports and type codes stay the ones the sample
+ * data uses. A passenger number forecast is generated for every flight of every route between the start and
+ * end dates
+ *
+ * Usage: java solution.DatasetGenerator scale outputDirectory [startDate endDate [seed]]
+ * e.g. java solution.DatasetGenerator 100 ./data/x100 2020-07-01 2020-08-31
+ * The output directory will hold aircraft.csv, crew.json, passengernumbers.db and routes.xml
+ */
+public class DatasetGenerator {
+
+	//flight numbers of each copy of the routes are offset by this much, so they never clash with another copy
+	private static final int FLIGHT_NUMBER_STRIDE = 10000;
+	private static final int BATCH_SIZE = 10000;
+
+	private final AircraftDAO aircraft;
+	private final CrewDAO crew;
+	private final RouteDAO routes;
+	private final int scale;
+
+	public DatasetGenerator(AircraftDAO aircraft, CrewDAO crew, RouteDAO routes, int scale) {
+		if (scale < 1) {
+			throw new IllegalArgumentException("The scale must be at least 1");
+		}
+		this.aircraft = aircraft;
+		this.crew = crew;
+		this.routes = routes;
+		this.scale = scale;
+	}
+
+	public static void main(String[] args) throws DataLoadingException, IOException, SQLException, XMLStreamException {
+
+		if (args.length < 2) {
+			System.out.println("Usage: java solution.DatasetGenerator scale outputDirectory [startDate endDate [seed]]");
+			return;
+		}
+
+		int scale = Integer.parseInt(args[0]);
+		Path output = Paths.get(args[1]);
+		LocalDate startDate = LocalDate.parse(args.length > 2 ? args[2] : "2020-07-01");
+		LocalDate endDate = LocalDate.parse(args.length > 3 ? args[3] : "2020-08-31");
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+		AircraftDAO aircraft = new AircraftDAO();
+		CrewDAO crew = new CrewDAO();
+		RouteDAO routes = new RouteDAO();
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+
+		Files.createDirectories(output);
+		DatasetGenerator generator = new DatasetGenerator(aircraft, crew, routes, scale);
+		generator.writeAircraft(output.resolve("aircraft.csv"));
+		generator.writeCrew(output.resolve("crew.json"));
+		generator.writeRoutes(output.resolve("routes.xml"));
+		generator.writePassengerNumbers(output.resolve("passengernumbers.db"), startDate, endDate, new Random(seed));
+
+		System.out.println("Wrote " + aircraft.getNumberOfAircraft() * scale + " aircraft, "
+				+ (crew.getNumberOfPilots() + crew.getNumberOfCabinCrew()) * scale + " crew and "
+				+ routes.getNumberOfRoutes() * scale + " routes to " + output);
+	}
+
+	/**
+	 * Writes the aircraft CSV file
+	 * @param path where to write the file
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeAircraft(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write("Tailcode,TypeCode,Manufacturer,Model,Seats,CabinCrewRequired,StartingPosition\n");
+			for (int copy = 0; copy < scale; copy++) {
+				for (Aircraft plane : aircraft.getAllAircraft()) {
+					String manufacturer = plane.getManufacturer().name();
+					writer.write(unique(plane.getTailCode(), copy) + "," + plane.getTypeCode() + ","
+							+ manufacturer.charAt(0) + manufacturer.substring(1).toLowerCase() + ","
+							+ plane.getModel() + "," + plane.getSeats() + "," + plane.getCabinCrewRequired() + ","
+							+ plane.getStartingPosition() + "\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the crew JSON file
+	 * @param path where to write the file
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeCrew(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			JSONWriter json = new JSONWriter(writer);
+			json.object();
+
+			json.key("pilots").array();
+			for (int copy = 0; copy < scale; copy++) {
+				for (Pilot pilot : crew.getAllPilots()) {
+					json.object();
+					writeCrewFields(json, pilot, copy);
+					json.key("rank").value(pilot.getRank().name());
+					json.key("typeRatings");
+					writeTypeRatings(json, pilot);
+					json.endObject();
+				}
+			}
+			json.endArray();
+
+			json.key("cabincrew").array();
+			for (int copy = 0; copy < scale; copy++) {
+				for (CabinCrew member : crew.getAllCabinCrew()) {
+					json.object();
+					writeCrewFields(json, member, copy);
+					json.key("typeRatings");
+					writeTypeRatings(json, member);
+					json.endObject();
+				}
+			}
+			json.endArray();
+
+			json.endObject();
+		}
+	}
+
+	private static void writeCrewFields(JSONWriter json, Crew member, int copy) {
+		json.key("forename").value(member.getForename());
+		json.key("surname").value(unique(member.getSurname(), copy));
+		json.key("homebase").value(member.getHomeBase());
+	}
+
+	private static void writeTypeRatings(JSONWriter json, Crew member) {
+		json.array();
+		for (String typeCode : member.getTypeRatings()) {
+			json.value(typeCode);
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Writes the routes XML file
+	 * @param path where to write the file
+	 * @throws IOException if the file could not be written
+	 * @throws XMLStreamException if the XML could not be written
+	 */
+	public void writeRoutes(Path path) throws IOException, XMLStreamException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+			xml.writeStartDocument("UTF-8", "1.0");
+			xml.writeCharacters("\n");
+			xml.writeStartElement("Routes");
+			for (int copy = 0; copy < scale; copy++) {
+				for (Route route : routes.getAllRoutes()) {
+					xml.writeCharacters("\n    ");
+					xml.writeStartElement("Route");
+					writeElement(xml, "FlightNumber", Integer.toString(flightNumber(route, copy)));
+					writeElement(xml, "DayOfWeek", route.getDayOfWeek());
+					writeElement(xml, "DepartureTime", route.getDepartureTime().toString());
+					writeElement(xml, "DepartureAirport", route.getDepartureAirport());
+					writeElement(xml, "DepartureAirportCode", route.getDepartureAirportCode());
+					writeElement(xml, "ArrivalTime", route.getArrivalTime().toString());
+					writeElement(xml, "ArrivalAirport", route.getArrivalAirport());
+					writeElement(xml, "ArrivalAirportCode", route.getArrivalAirportCode());
+					writeElement(xml, "Duration", route.getDuration().toString());
+					xml.writeCharacters("\n    ");
+					xml.writeEndElement();
+				}
+			}
+			xml.writeCharacters("\n");
+			xml.writeEndElement();
+			xml.writeEndDocument();
+			xml.close();
+		}
+	}
+
+	private static void writeElement(XMLStreamWriter xml, String tagName, String value) throws XMLStreamException {
+		xml.writeCharacters("\n        ");
+		xml.writeStartElement(tagName);
+		xml.writeCharacters(value);
+		xml.writeEndElement();
+	}
+
+	/**
+	 * Writes the passenger numbers SQLite database, with a forecast for every day each route flies between the dates.
+	 * Forecasts are spread between a quarter of the smallest aircraft's seats and the largest aircraft's seats
+	 * @param path where to write the database. Any existing file is replaced
+	 * @param startDate the first date to forecast
+	 * @param endDate the last date to forecast
+	 * @param random the source of the forecasts
+	 * @throws IOException if an existing database could not be replaced
+	 * @throws SQLException if the database could not be written
+	 */
+	public void writePassengerNumbers(Path path, LocalDate startDate, LocalDate endDate, Random random) throws IOException, SQLException {
+		Files.deleteIfExists(path);
+
+		int fewestSeats = Integer.MAX_VALUE;
+		int mostSeats = 0;
+		for (Aircraft plane : aircraft.getAllAircraft()) {
+			fewestSeats = Math.min(fewestSeats, plane.getSeats());
+			mostSeats = Math.max(mostSeats, plane.getSeats());
+		}
+		int lowest = fewestSeats / 4;
+		int range = Math.max(1, mostSeats - lowest);
+
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path.toString())) {
+			try (Statement create = connection.createStatement()) {
+				create.executeUpdate("CREATE TABLE \"PassengerNumbers\" (\"Date\" TEXT, \"FlightNumber\" INTEGER, "
+						+ "\"Passengers\" INTEGER, PRIMARY KEY(\"FlightNumber\",\"Date\"))");
+			}
+
+			connection.setAutoCommit(false);
+			try (PreparedStatement insert = connection.prepareStatement(
+					"INSERT INTO PassengerNumbers (Date, FlightNumber, Passengers) VALUES (?, ?, ?)")) {
+				int batched = 0;
+				for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+					String day = date.toString();
+					for (Route route : routes.findRoutesbyDate(date)) {
+						for (int copy = 0; copy < scale; copy++) {
+							insert.setString(1, day);
+							insert.setInt(2, flightNumber(route, copy));
+							insert.setInt(3, lowest + random.nextInt(range));
+							insert.addBatch();
+							if (++batched == BATCH_SIZE) {
+								insert.executeBatch();
+								batched = 0;
+							}
+						}
+					}
+				}
+				insert.executeBatch();
+			}
+			connection.commit();
+		}
+	}
+
+	private static String unique(String value, int copy) {
+		return copy == 0 ? value : value + "-" + copy;
+	}
+
+	private static int flightNumber(Route route, int copy) {
+		return route.getFlightNumber() + copy * FLIGHT_NUMBER_STRIDE;
+	}
+}
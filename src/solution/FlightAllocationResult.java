@@ -0,0 +1,69 @@
+package solution;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import baseclasses.FlightInfo;
+
+/**
+ * A FlightAllocationResult records what happened when the Scheduler tried to allocate one flight:
+ * whether it was fully allocated, partly allocated or not allocated at all, and what was missing
+ */
+public class FlightAllocationResult {
+
+	public enum Status {
+		ALLOCATED,
+		//the flight has an aircraft but is missing some of its crew, so it was left incomplete
+		PARTIALLY_ALLOCATED,
+		NOT_ALLOCATED
+	}
+
+	public enum Reason {
+		NO_FREE_AIRCRAFT,
+		NO_FREE_CAPTAIN,
+		NO_FREE_FIRST_OFFICER,
+		NOT_ENOUGH_CABIN_CREW,
+		//the schedule refused an allocation the scheduler had already checked, which would be a bug in the scheduler
+		REJECTED_BY_SCHEDULE
+	}
+
+	private final FlightInfo flight;
+	private final Status status;
+	private final Set<Reason> reasons;
+
+	FlightAllocationResult(FlightInfo flight, Status status, Set<Reason> reasons) {
+		this.flight = flight;
+		this.status = status;
+		this.reasons = reasons.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(reasons));
+	}
+
+	/**
+	 * Returns the flight this is the result for
+	 * @return the flight this is the result for
+	 */
+	public FlightInfo getFlight() {
+		return flight;
+	}
+
+	/**
+	 * Returns how far the flight's allocation got
+	 * @return how far the flight's allocation got
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns why the flight wasn't allocated, which is empty if it was
+	 * @return why the flight wasn't allocated
+	 */
+	public Set<Reason> getReasons() {
+		return reasons;
+	}
+
+	@Override
+	public String toString() {
+		return "Flight " + flight.getFlight().getFlightNumber() + " at " + flight.getDepartureDateTime() + ": " + status
+				+ (reasons.isEmpty() ? "" : " " + reasons);
+	}
+}
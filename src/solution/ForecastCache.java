@@ -0,0 +1,82 @@
+package solution;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ForecastCache holds the most recently used passenger forecasts read from a connected database,
+ * so asking for the same flight and date again doesn't query it again. It holds at most a fixed number of them,
+ * dropping the least recently used first. Flights with no forecast are held too, as -1, so they aren't
+ * looked up again either. It is safe to use from several threads
+ */
+class ForecastCache {
+
+	private final int capacity;
+	private final LinkedHashMap<Long, Integer> forecasts;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param capacity the most forecasts to hold, at least one
+	 */
+	ForecastCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("A cache needs room for at least one forecast, not " + capacity);
+		}
+		this.capacity = capacity;
+		//in access order, so the eldest entry is the least recently used
+		this.forecasts = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+				if (size() > ForecastCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the forecast held for a flight on a date, counting a hit or a miss
+	 * @param flightNumber the flight number of the flight
+	 * @param epochDay the date of the flight, as returned by LocalDate.toEpochDay()
+	 * @return the forecast held, which is -1 if the flight is known to have none, or null if nothing is held for it
+	 */
+	synchronized Integer get(int flightNumber, long epochDay) {
+		Integer passengers = forecasts.get(keyFor(flightNumber, epochDay));
+		if (passengers == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return passengers;
+	}
+
+	/**
+	 * Holds the forecast for a flight on a date, which may be -1 for a flight with none,
+	 * dropping the least recently used forecast if the cache is full
+	 */
+	synchronized void put(int flightNumber, long epochDay, int passengers) {
+		forecasts.put(keyFor(flightNumber, epochDay), passengers);
+	}
+
+	synchronized long hits() {
+		return hits;
+	}
+
+	synchronized long misses() {
+		return misses;
+	}
+
+	synchronized long evictions() {
+		return evictions;
+	}
+
+	private static long keyFor(int flightNumber, long epochDay) {
+		return ((long) flightNumber << 32) | (epochDay & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,90 @@
+package solution;
+import java.util.Arrays;
+
+/**
+ * The LastLegs class remembers how many flights each aircraft and crew member has been allocated to in a schedule,
+ * and the last two of them, so the scheduler can read them without Schedule.getCompletedAllocationsFor()
+ * copying the whole list every time. The flights are counted in the order the schedule keeps them: the order
+ * they were allocated in, with a pilot's flights as captain all coming before their flights as first officer.
+ * Resources and flights are both given by their ids in a SchedulingModel, and a missing flight is -1
+ */
+class LastLegs {
+
+	//aircraft, cabin crew and pilots working as captain
+	private final Legs legs;
+	private final Legs firstOfficerLegs;
+
+	LastLegs(int resources) {
+		legs = new Legs(resources);
+		firstOfficerLegs = new Legs(resources);
+	}
+
+	/**
+	 * Records that an aircraft, cabin crew member or captain has been allocated to a flight
+	 */
+	void record(int resource, int flight) {
+		legs.add(resource, flight);
+	}
+
+	/**
+	 * Records that a pilot has been allocated to a flight as its first officer
+	 */
+	void recordFirstOfficer(int pilot, int flight) {
+		firstOfficerLegs.add(pilot, flight);
+	}
+
+	/**
+	 * Returns the number of flights the resource has been allocated to
+	 */
+	int countFor(int resource) {
+		return legs.count[resource] + firstOfficerLegs.count[resource];
+	}
+
+	/**
+	 * Returns the last flight the resource has been allocated to, or -1 if there isn't one
+	 */
+	int lastFor(int resource) {
+		return firstOfficerLegs.count[resource] > 0 ? firstOfficerLegs.last[resource] : legs.last[resource];
+	}
+
+	/**
+	 * Returns the flight before the last one the resource has been allocated to, or -1 if there isn't one
+	 */
+	int secondToLastFor(int resource) {
+		int asFirstOfficer = firstOfficerLegs.count[resource];
+		if (asFirstOfficer > 1) {
+			return firstOfficerLegs.previous[resource];
+		}
+		return asFirstOfficer == 1 ? legs.last[resource] : legs.previous[resource];
+	}
+
+	void clear() {
+		legs.clear();
+		firstOfficerLegs.clear();
+	}
+
+	private static class Legs {
+		final int[] count;
+		final int[] last;
+		final int[] previous;
+
+		Legs(int resources) {
+			count = new int[resources];
+			last = new int[resources];
+			previous = new int[resources];
+			clear();
+		}
+
+		void add(int resource, int flight) {
+			previous[resource] = last[resource];
+			last[resource] = flight;
+			count[resource]++;
+		}
+
+		void clear() {
+			Arrays.fill(count, 0);
+			Arrays.fill(last, -1);
+			Arrays.fill(previous, -1);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package solution;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The LookupMetrics class counts the calls, results and time spent in a DAO's lookup methods.
+ * It is opt-in: a DAO only records into it once metrics have been enabled on that DAO
+ */
+public class LookupMetrics implements LookupMetricsMXBean {
+
+	private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Records one call of a lookup method
+	 * @param lookup the name of the lookup method
+	 * @param results the number of results it returned
+	 * @param startNanos the value of System.nanoTime() when the call began
+	 */
+	public void record(String lookup, int results, long startNanos) {
+		long elapsed = System.nanoTime() - startNanos;
+		Counters c = counters.computeIfAbsent(lookup, l -> new Counters());
+		c.calls.increment();
+		c.results.add(results);
+		c.nanos.add(elapsed);
+	}
+
+	@Override
+	public Map<String, Long> getCallCounts() {
+		return snapshot(c -> c.calls.sum());
+	}
+
+	@Override
+	public Map<String, Long> getResultCounts() {
+		return snapshot(c -> c.results.sum());
+	}
+
+	@Override
+	public Map<String, Long> getTotalNanos() {
+		return snapshot(c -> c.nanos.sum());
+	}
+
+	@Override
+	public void reset() {
+		counters.clear();
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server
+	 * @param name the name to register under, e.g. "AircraftDAO"
+	 * @throws JMException if the metrics could not be registered
+	 */
+	public void registerMBean(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("solution:type=LookupMetrics,name=" + name));
+	}
+
+	private Map<String, Long> snapshot(Function<Counters, Long> counter) {
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+			values.put(entry.getKey(), counter.apply(entry.getValue()));
+		}
+		return values;
+	}
+
+	private static class Counters {
+		final LongAdder calls = new LongAdder();
+		final LongAdder results = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+	}
+}
@@ -0,0 +1,31 @@
+package solution;
+import java.util.Map;
+
+/**
+ * The management interface of LookupMetrics, so that lookup load can be watched over JMX
+ */
+public interface LookupMetricsMXBean {
+
+	/**
+	 * Returns how many times each lookup method has been called
+	 * @return a map from lookup method name to number of calls
+	 */
+	Map<String, Long> getCallCounts();
+
+	/**
+	 * Returns the total number of results each lookup method has returned
+	 * @return a map from lookup method name to total results returned
+	 */
+	Map<String, Long> getResultCounts();
+
+	/**
+	 * Returns the total time spent in each lookup method
+	 * @return a map from lookup method name to cumulative nanoseconds
+	 */
+	Map<String, Long> getTotalNanos();
+
+	/**
+	 * Sets every counter back to zero
+	 */
+	void reset();
+}
@@ -12,20 +12,23 @@ public class Main {
 
 	public static void main(String[] args) throws DataLoadingException {	
 		
-		IAircraftDAO aircraft = new AircraftDAO();
-		ICrewDAO crew = new CrewDAO();
-		IPassengerNumbersDAO numbers = new PassengerNumbersDAO();
-		IRouteDAO routes = new RouteDAO();
+		AircraftDAO aircraft = new AircraftDAO();
+		CrewDAO crew = new CrewDAO();
+		PassengerNumbersDAO numbers = new PassengerNumbersDAO();
+		RouteDAO routes = new RouteDAO();
 					
 		aircraft.reset();
 		crew.reset();
 		numbers.reset();
 		routes.reset();
 		
-		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
-		crew.loadCrewData(Paths.get("./data/crew.json"));
-		numbers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
-		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		ParallelDataLoader loader = new ParallelDataLoader();
+		loader.addAircraftFile(Paths.get("./data/aircraft.csv"));
+		loader.addCrewFile(Paths.get("./data/crew.json"));
+		loader.addPassengerNumbersFile(Paths.get("./data/passengernumbers.db"));
+		loader.addRouteFile(Paths.get("./data/routes.xml"));
+		loader.setSnapshotCache(new SnapshotCache(Paths.get("./data/snapshots")));
+		loader.loadInto(aircraft, crew, numbers, routes);
 	
 		Scheduler scheduler = new Scheduler();
 		scheduler.generateSchedule(aircraft, crew, routes, numbers, LocalDate.parse("2020-07-01"), LocalDate.parse("2020-08-31"));
@@ -0,0 +1,203 @@
+package solution;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * The ParallelDataLoader loads any number of aircraft, crew, passenger number and route files at once.
+ * Each file is parsed into its own DAO on a bounded pool of threads, so the DAOs themselves never see
+ * more than one thread. Only once every file has loaded are the results merged, in the order the files
+ * were added, into the target DAOs; if any file fails, none of them are merged
+ */
+public class ParallelDataLoader {
+
+	private final int threads;
+	private final List<Path> aircraftFiles = new ArrayList<>();
+	private final List<Path> crewFiles = new ArrayList<>();
+	private final List<Path> passengerNumbersFiles = new ArrayList<>();
+	private final List<Path> routeFiles = new ArrayList<>();
+	private SnapshotCache snapshots;
+
+	/**
+	 * Creates a loader that parses files on up to the given number of threads
+	 * @param threads the most files to parse at once
+	 */
+	public ParallelDataLoader(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed to load data");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Creates a loader that parses files on as many threads as there are processors
+	 */
+	public ParallelDataLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Adds a CSV file of aircraft to be loaded
+	 * @param path A Path pointing to the file
+	 */
+	public void addAircraftFile(Path path) {
+		aircraftFiles.add(path);
+	}
+
+	/**
+	 * Adds a JSON file of crew to be loaded
+	 * @param path A Path pointing to the file
+	 */
+	public void addCrewFile(Path path) {
+		crewFiles.add(path);
+	}
+
+	/**
+	 * Adds an SQLite database of passenger number forecasts to be loaded
+	 * Where databases hold forecasts for the same flight and date, the one added last wins
+	 * @param path A Path pointing to the database
+	 */
+	public void addPassengerNumbersFile(Path path) {
+		passengerNumbersFiles.add(path);
+	}
+
+	/**
+	 * Adds an XML file of routes to be loaded
+	 * @param path A Path pointing to the file
+	 */
+	public void addRouteFile(Path path) {
+		routeFiles.add(path);
+	}
+
+	/**
+	 * Sets the cache to load files through, so that files which haven't changed since they were last loaded
+	 * are read from their snapshots instead of being parsed again
+	 * @param snapshots the cache to use, or null to always parse the files
+	 */
+	public void setSnapshotCache(SnapshotCache snapshots) {
+		this.snapshots = snapshots;
+	}
+
+	/**
+	 * Loads every file that has been added, in parallel, and adds the results to the given DAOs
+	 * @param aircraft the DAO to add the loaded aircraft to
+	 * @param crew the DAO to add the loaded crew to
+	 * @param passengerNumbers the DAO to add the loaded passenger numbers to
+	 * @param routes the DAO to add the loaded routes to
+	 * @throws DataLoadingException if any file could not be loaded. Its cause is the first failure,
+	 * and every other failure is attached as a suppressed exception. None of the DAOs are changed
+	 */
+	public void loadInto(AircraftDAO aircraft, CrewDAO crew, PassengerNumbersDAO passengerNumbers, RouteDAO routes)
+			throws DataLoadingException {
+
+		SnapshotCache snapshots = this.snapshots;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<AircraftDAO>> aircraftShards = new ArrayList<>();
+			for (Path path : aircraftFiles) {
+				aircraftShards.add(executor.submit(() -> {
+					AircraftDAO shard = new AircraftDAO();
+					if (snapshots == null) {
+						shard.loadAircraftData(path);
+					} else {
+						snapshots.loadAircraftData(shard, path);
+					}
+					return shard;
+				}));
+			}
+
+			List<Future<CrewDAO>> crewShards = new ArrayList<>();
+			for (Path path : crewFiles) {
+				crewShards.add(executor.submit(() -> {
+					CrewDAO shard = new CrewDAO();
+					if (snapshots == null) {
+						shard.loadCrewData(path);
+					} else {
+						snapshots.loadCrewData(shard, path);
+					}
+					return shard;
+				}));
+			}
+
+			List<Future<PassengerNumbersDAO>> passengerNumbersShards = new ArrayList<>();
+			for (Path path : passengerNumbersFiles) {
+				passengerNumbersShards.add(executor.submit(() -> {
+					PassengerNumbersDAO shard = new PassengerNumbersDAO();
+					if (snapshots == null) {
+						shard.loadPassengerNumbersData(path);
+					} else {
+						snapshots.loadPassengerNumbersData(shard, path);
+					}
+					return shard;
+				}));
+			}
+
+			List<Future<RouteDAO>> routeShards = new ArrayList<>();
+			for (Path path : routeFiles) {
+				routeShards.add(executor.submit(() -> {
+					RouteDAO shard = new RouteDAO();
+					if (snapshots == null) {
+						shard.loadRouteData(path);
+					} else {
+						snapshots.loadRouteData(shard, path);
+					}
+					return shard;
+				}));
+			}
+
+			List<Throwable> failures = new ArrayList<>();
+			List<AircraftDAO> loadedAircraft = await(aircraftShards, failures);
+			List<CrewDAO> loadedCrew = await(crewShards, failures);
+			List<PassengerNumbersDAO> loadedPassengerNumbers = await(passengerNumbersShards, failures);
+			List<RouteDAO> loadedRoutes = await(routeShards, failures);
+
+			if (!failures.isEmpty()) {
+				DataLoadingException exception = new DataLoadingException(failures.get(0));
+				for (Throwable failure : failures.subList(1, failures.size())) {
+					exception.addSuppressed(failure);
+				}
+				throw exception;
+			}
+
+			for (AircraftDAO shard : loadedAircraft) {
+				aircraft.addAll(shard);
+			}
+			for (CrewDAO shard : loadedCrew) {
+				crew.addAll(shard);
+			}
+			for (PassengerNumbersDAO shard : loadedPassengerNumbers) {
+				passengerNumbers.addAll(shard);
+			}
+			for (RouteDAO shard : loadedRoutes) {
+				routes.addAll(shard);
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Waits for every shard, collecting the loaded ones in order and noting every failure
+	 */
+	private static <T> List<T> await(List<Future<T>> shards, List<Throwable> failures) throws DataLoadingException {
+		List<T> loaded = new ArrayList<>();
+		for (Future<T> shard : shards) {
+			try {
+				loaded.add(shard.get());
+			} catch (ExecutionException e) {
+				failures.add(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DataLoadingException(e);
+			}
+		}
+		return loaded;
+	}
+}
@@ -2,6 +2,7 @@ package solution;
 import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.Arrays;
 
 import baseclasses.DataLoadingException;
 import baseclasses.IPassengerNumbersDAO;
@@ -9,39 +10,66 @@ import baseclasses.IPassengerNumbersDAO;
 /**
  * The PassengerNumbersDAO is responsible for loading an SQLite database
  * containing forecasts of passenger numbers for flights on dates
+ *
+ * Instead of loading a copy, it can be connected to a database with connectPassengerNumbersData(), after which
+ * every lookup is a query on it, run on a small pool of connections with statements that are only prepared once.
+ * The forecasts most recently read from it, and the flights found to have none, are kept in a ForecastCache of bounded size
  */
 public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 
-	Connection connection = null;
+	//the most flight numbers asked for by one batch query, which always has this many placeholders so it is only prepared once
+	static final int BATCH_SIZE = 64;
+	//enough for every flight of a two month schedule
+	static final int DEFAULT_CACHE_SIZE = 16384;
+
+	private static final String LOOKUP_QUERY = "SELECT Passengers FROM PassengerNumbers WHERE FlightNumber = ? AND Date = ?;";
+	private static final String COUNT_QUERY = "SELECT COUNT(*) FROM (SELECT DISTINCT FlightNumber, Date FROM PassengerNumbers);";
+	private static final String BATCH_QUERY = batchQuery();
+
+	private PassengerNumbersIndex numbers = new PassengerNumbersIndex();
+	private volatile Database database;
+
+	/*
+	 * A connected database and the cache in front of it, swapped together so a lookup never sees one without the other
+	 */
+	private static class Database {
+		final ConnectionPool pool;
+		final ForecastCache cache;
+
+		Database(ConnectionPool pool, ForecastCache cache) {
+			this.pool = pool;
+			this.cache = cache;
+		}
+	}
+
+	private static String batchQuery() {
+		StringBuilder query = new StringBuilder("SELECT Date, FlightNumber, Passengers FROM PassengerNumbers WHERE Date BETWEEN ? AND ? AND FlightNumber IN (");
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		return query.append(");").toString();
+	}
+
 	/**
-	 * Returns the number of passenger number entries in the cache
+	 * Returns the number of passenger number entries in the cache, or in the database if one is connected
 	 * @return the number of passenger number entries in the cache
 	 */
 	@Override
 	public int getNumberOfEntries() {
-	
-		int count=0;
-		
+		Database database = this.database;
+		if (database == null) {
+			return numbers.size();
+		}
 		try {
-			
-			if(connection != null) {
-				Statement countStatment = connection.createStatement();
-				ResultSet countResult = countStatment.executeQuery(
-						"SELECT COUNT(Date) AS total FROM PassengerNumbers;");
-				count = countResult.getInt("total");
-				
-				if (count == 0) {
-					count = -1;
-				}
-			} else {
-				count = -1;
+			ConnectionPool.PooledConnection connection = database.pool.borrow();
+			try (ResultSet result = connection.prepare(COUNT_QUERY).executeQuery()) {
+				return result.next() ? result.getInt(1) : 0;
+			} finally {
+				database.pool.giveBack(connection);
 			}
-			
-		} catch (SQLException | NullPointerException se) {
-			se.printStackTrace();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
 		}
-		
-		return count;
 	}
 
 	/**
@@ -49,73 +77,293 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	 * @param flightNumber The flight number of the flight to check for
 	 * @param date the date of the flight to check for
 	 * @return the predicted number of passengers, or -1 if no data available
+	 * @throws IllegalStateException if a database is connected and the query on it failed
 	 */
 	@Override
 	public int getPassengerNumbersFor(int flightNumber, LocalDate date) {
-		int passengerNumber=0;
-
+		Database database = this.database;
+		if (database == null) {
+			return numbers.get(flightNumber, date);
+		}
+		long epochDay = date.toEpochDay();
+		Integer cached = database.cache.get(flightNumber, epochDay);
+		if (cached != null) {
+			return cached;
+		}
 		try {
-			
-			if (connection != null) {
-			
-				PreparedStatement numbersStatement = connection.prepareStatement("SELECT * FROM PassengerNumbers WHERE FlightNumber=? AND Date=?;");
-				numbersStatement.setInt(1, flightNumber);
-				numbersStatement.setObject(2, date.toString());
-	
-				
-				ResultSet numbersResult = numbersStatement.executeQuery();
-				while(numbersResult.next()) {
-					passengerNumber = numbersResult.getInt("Passengers");
-				}
-				
-				if (passengerNumber == 0) {
-					passengerNumber = -1;
+			ConnectionPool.PooledConnection connection = database.pool.borrow();
+			try {
+				PreparedStatement lookup = connection.prepare(LOOKUP_QUERY);
+				lookup.setInt(1, flightNumber);
+				lookup.setString(2, date.toString());
+				//if the table has the same flight and date twice, the last row wins, as it does when it is loaded
+				int passengers = -1;
+				try (ResultSet result = lookup.executeQuery()) {
+					while (result.next()) {
+						passengers = result.getInt(1);
+					}
 				}
+				database.cache.put(flightNumber, epochDay, passengers);
+				return passengers;
+			} finally {
+				database.pool.giveBack(connection);
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the predicted number of passengers for many flights at once. When a database is connected, the flights
+	 * that aren't cached are fetched with one query per BATCH_SIZE different flight numbers, over every date from
+	 * the earliest of them to the latest, rather than with one query per flight
+	 * @param flightNumbers the flight numbers of the flights to check for
+	 * @param dates the dates of the flights, in the same order
+	 * @return the predicted number of passengers for each flight, in the same order, with -1 where no data is available
+	 * @throws IllegalStateException if a database is connected and the query on it failed
+	 */
+	public int[] getPassengerNumbersFor(int[] flightNumbers, LocalDate[] dates) {
+		if (flightNumbers.length != dates.length) {
+			throw new IllegalArgumentException(flightNumbers.length + " flight numbers but " + dates.length + " dates");
+		}
+		int[] passengers = new int[flightNumbers.length];
+		Database database = this.database;
+		if (database == null) {
+			for (int i = 0; i < flightNumbers.length; i++) {
+				passengers[i] = numbers.get(flightNumbers[i], dates[i]);
+			}
+			return passengers;
+		}
+
+		//answer what the cache can, and note the positions of the rest
+		int[] uncached = new int[flightNumbers.length];
+		int missing = 0;
+		for (int i = 0; i < flightNumbers.length; i++) {
+			Integer cached = database.cache.get(flightNumbers[i], dates[i].toEpochDay());
+			if (cached == null) {
+				uncached[missing++] = i;
 			} else {
-				passengerNumber = -1;
+				passengers[i] = cached;
 			}
-			
-		} catch (SQLException se) {
-			se.printStackTrace();
 		}
-		
-		return passengerNumber;
+		if (missing == 0) {
+			return passengers;
+		}
+
+		LocalDate first = dates[uncached[0]];
+		LocalDate last = first;
+		int[] distinct = new int[missing];
+		for (int m = 0; m < missing; m++) {
+			LocalDate date = dates[uncached[m]];
+			first = date.isBefore(first) ? date : first;
+			last = date.isAfter(last) ? date : last;
+			distinct[m] = flightNumbers[uncached[m]];
+		}
+		Arrays.sort(distinct);
+		int count = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (i == 0 || distinct[i] != distinct[i - 1]) {
+				distinct[count++] = distinct[i];
+			}
+		}
+
+		PassengerNumbersIndex fetched = new PassengerNumbersIndex();
+		try {
+			ConnectionPool.PooledConnection connection = database.pool.borrow();
+			try {
+				PreparedStatement batch = connection.prepare(BATCH_QUERY);
+				batch.setString(1, first.toString());
+				batch.setString(2, last.toString());
+				for (int from = 0; from < count; from += BATCH_SIZE) {
+					//a short last batch repeats its last flight number in the spare placeholders
+					for (int i = 0; i < BATCH_SIZE; i++) {
+						batch.setInt(3 + i, distinct[Math.min(from + i, count - 1)]);
+					}
+					try (ResultSet result = batch.executeQuery()) {
+						while (result.next()) {
+							long epochDay = LocalDate.parse(result.getString(1)).toEpochDay();
+							fetched.put(result.getInt(2), epochDay, result.getInt(3));
+						}
+					}
+				}
+			} finally {
+				database.pool.giveBack(connection);
+			}
+		} catch (SQLException | RuntimeException e) {
+			throw new IllegalStateException(e);
+		}
+
+		for (int m = 0; m < missing; m++) {
+			int i = uncached[m];
+			long epochDay = dates[i].toEpochDay();
+			passengers[i] = fetched.get(flightNumbers[i], epochDay);
+			database.cache.put(flightNumbers[i], epochDay, passengers[i]);
+		}
+		return passengers;
 	}
-	
 
 	/**
 	 * Loads the passenger numbers data from the specified SQLite database into a cache for future calls to getPassengerNumbersFor()
 	 * Multiple calls to this method are additive, but flight numbers/dates previously cached will be overwritten
-	 * The cache can be reset by calling reset() 
+	 * The cache can be reset by calling reset()
 	 * @param p The path of the SQLite database to load data from
 	 * @throws DataLoadingException If there is a problem loading from the database
 	 */
 	@Override
 	public void loadPassengerNumbersData(Path path) throws DataLoadingException {
-		
-		try {
-			connection = DriverManager.getConnection("jdbc:sqlite:" + path);
-		} catch (SQLException | NullPointerException e) {
-			e.printStackTrace();
-			throw new DataLoadingException();
+
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path.toString());
+				Statement numbersStatement = connection.createStatement();
+				ResultSet numbersResult = numbersStatement.executeQuery(
+						"SELECT Date, FlightNumber, Passengers FROM PassengerNumbers;")) {
+
+			//stream the whole table straight into the index, one row at a time
+			while (numbersResult.next()) {
+				long epochDay = LocalDate.parse(numbersResult.getString(1)).toEpochDay();
+				numbers.put(numbersResult.getInt(2), epochDay, numbersResult.getInt(3));
+			}
+
+		} catch (SQLException | RuntimeException e) {
+			throw new DataLoadingException(e);
 		}
 
 	}
 
 	/**
-	 * Removes all data from the DAO, ready to start again if needed
+	 * Looks up many flights at once through any IPassengerNumbersDAO, as a batch if it is a PassengerNumbersDAO
+	 * and one flight at a time otherwise
+	 * @see #getPassengerNumbersFor(int[], LocalDate[])
 	 */
-	@Override
-	public void reset() {
-		
+	static int[] getPassengerNumbersFor(IPassengerNumbersDAO passengers, int[] flightNumbers, LocalDate[] dates) {
+		if (passengers instanceof PassengerNumbersDAO) {
+			return ((PassengerNumbersDAO) passengers).getPassengerNumbersFor(flightNumbers, dates);
+		}
+		int[] numbers = new int[flightNumbers.length];
+		for (int i = 0; i < flightNumbers.length; i++) {
+			numbers[i] = passengers.getPassengerNumbersFor(flightNumbers[i], dates[i]);
+		}
+		return numbers;
+	}
+
+	/**
+	 * Connects to an SQLite database of passenger numbers, caching up to DEFAULT_CACHE_SIZE forecasts read from it
+	 * @see #connectPassengerNumbersData(Path, int, int)
+	 */
+	public void connectPassengerNumbersData(Path path, int connections) throws DataLoadingException {
+		connectPassengerNumbersData(path, connections, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Connects to an SQLite database of passenger numbers and answers every later lookup with a query on it,
+	 * instead of loading a copy of it. Any database already connected is closed first, and its cache dropped.
+	 * Forecasts loaded by loadPassengerNumbersData() are kept, but aren't used again until reset() disconnects the database
+	 * @param path The path of the SQLite database to connect to
+	 * @param connections the number of connections to keep open, which is the most lookups that can run at once
+	 * @param cacheSize the most forecasts to keep from earlier lookups, dropping the least recently used first
+	 * @throws DataLoadingException If the database couldn't be opened, or has no PassengerNumbers table
+	 */
+	public void connectPassengerNumbersData(Path path, int connections, int cacheSize) throws DataLoadingException {
+
+		ForecastCache cache = new ForecastCache(cacheSize);
+
+		ConnectionPool pool = null;
 		try {
-			loadPassengerNumbersData(null);
-		} catch (DataLoadingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			pool = new ConnectionPool("jdbc:sqlite:" + path.toString(), connections);
+			//prepare the lookups up front, so a missing table is found now rather than by the first lookup
+			ConnectionPool.PooledConnection connection = pool.borrow();
+			try {
+				connection.prepare(LOOKUP_QUERY);
+				connection.prepare(BATCH_QUERY);
+			} finally {
+				pool.giveBack(connection);
+			}
+		} catch (SQLException | RuntimeException e) {
+			if (pool != null) {
+				pool.close();
+			}
+			throw new DataLoadingException(e);
+		}
+
+		disconnect();
+		database = new Database(pool, cache);
+	}
+
+	/**
+	 * Returns whether lookups are being answered by a connected database
+	 */
+	public boolean isConnected() {
+		return database != null;
+	}
+
+	/**
+	 * Returns the number of lookups on the connected database answered by its cache
+	 * @return the number of cache hits, or 0 if no database is connected
+	 */
+	public long getCacheHits() {
+		Database database = this.database;
+		return database == null ? 0 : database.cache.hits();
+	}
+
+	/**
+	 * Returns the number of lookups on the connected database that weren't cached, and so were queried
+	 * @return the number of cache misses, or 0 if no database is connected
+	 */
+	public long getCacheMisses() {
+		Database database = this.database;
+		return database == null ? 0 : database.cache.misses();
+	}
+
+	/**
+	 * Returns the number of forecasts dropped from the cache to make room for others
+	 * @return the number of cache evictions, or 0 if no database is connected
+	 */
+	public long getCacheEvictions() {
+		Database database = this.database;
+		return database == null ? 0 : database.cache.evictions();
+	}
+
+	private void disconnect() {
+		Database database = this.database;
+		this.database = null;
+		if (database != null) {
+			database.pool.close();
 		}
-		connection = null;
+	}
 
+	/**
+	 * Adds every forecast loaded by another PassengerNumbersDAO to this one, overwriting any already held
+	 * for the same flight and date, as if its databases had been loaded here
+	 * @param other the PassengerNumbersDAO to copy forecasts from
+	 */
+	void addAll(PassengerNumbersDAO other) {
+		numbers.putAll(other.numbers);
+	}
+	
+	/**
+	 * Adds a single forecast, overwriting any already held for the same flight and date
+	 * @param flightNumber the flight number of the flight
+	 * @param epochDay the date of the flight, as returned by LocalDate.toEpochDay()
+	 * @param passengers the predicted number of passengers
+	 */
+	void addForecast(int flightNumber, long epochDay, int passengers) {
+		numbers.put(flightNumber, epochDay, passengers);
+	}
+	
+	/**
+	 * Passes every forecast held to the visitor, in no particular order
+	 * @param visitor the visitor to pass the forecasts to
+	 */
+	void forEachForecast(PassengerNumbersIndex.Visitor visitor) {
+		numbers.forEach(visitor);
+	}
+
+	/**
+	 * Removes all data from the DAO, and closes any connected database, ready to start again if needed
+	 */
+	@Override
+	public void reset() {
+		numbers.clear();
+		disconnect();
 	}
 
 }
@@ -0,0 +1,153 @@
+package solution;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * The PassengerNumbersIndex is a compact hash table mapping (flight number, date) pairs
+ * to forecast passenger numbers. Keys and values are held in primitive arrays so that
+ * lookups never box or touch the database
+ */
+class PassengerNumbersIndex {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys = new long[INITIAL_CAPACITY];
+	private int[] values = new int[INITIAL_CAPACITY];
+	private boolean[] occupied = new boolean[INITIAL_CAPACITY];
+	private int size = 0;
+
+	/**
+	 * Stores the forecast for a flight on a date, replacing any forecast already held for that pair
+	 * @param flightNumber the flight number of the flight
+	 * @param epochDay the date of the flight, as returned by LocalDate.toEpochDay()
+	 * @param passengers the predicted number of passengers
+	 */
+	void put(int flightNumber, long epochDay, int passengers) {
+		if (size + 1 > keys.length * LOAD_FACTOR) {
+			resize(keys.length * 2);
+		}
+
+		long key = keyFor(flightNumber, epochDay);
+		int slot = slotFor(key, keys.length);
+
+		while (occupied[slot]) {
+			if (keys[slot] == key) {
+				values[slot] = passengers;
+				return;
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+
+		keys[slot] = key;
+		values[slot] = passengers;
+		occupied[slot] = true;
+		size++;
+	}
+
+	/**
+	 * Stores every forecast held by another index, replacing any already held for the same pairs
+	 * @param other the index to copy forecasts from
+	 */
+	void putAll(PassengerNumbersIndex other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.occupied[i]) {
+				long key = other.keys[i];
+				put((int) (key >> 32), (int) key, other.values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the forecast for a flight on a date
+	 * @param flightNumber the flight number of the flight
+	 * @param date the date of the flight
+	 * @return the predicted number of passengers, or -1 if no forecast is held
+	 */
+	int get(int flightNumber, LocalDate date) {
+		return get(flightNumber, date.toEpochDay());
+	}
+
+	/**
+	 * Returns the forecast for a flight on a date
+	 * @param flightNumber the flight number of the flight
+	 * @param epochDay the date of the flight, as returned by LocalDate.toEpochDay()
+	 * @return the predicted number of passengers, or -1 if no forecast is held
+	 */
+	int get(int flightNumber, long epochDay) {
+		long key = keyFor(flightNumber, epochDay);
+		int slot = slotFor(key, keys.length);
+
+		while (occupied[slot]) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Passes every forecast held to the visitor, in no particular order
+	 * @param visitor the visitor to pass the forecasts to
+	 */
+	void forEach(Visitor visitor) {
+		for (int i = 0; i < keys.length; i++) {
+			if (occupied[i]) {
+				visitor.visit((int) (keys[i] >> 32), (int) keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of (flight number, date) pairs held
+	 * @return the number of (flight number, date) pairs held
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every forecast from the index
+	 */
+	void clear() {
+		Arrays.fill(occupied, false);
+		size = 0;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldOccupied = occupied;
+
+		keys = new long[capacity];
+		values = new int[capacity];
+		occupied = new boolean[capacity];
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldOccupied[i]) {
+				int slot = slotFor(oldKeys[i], capacity);
+				while (occupied[slot]) {
+					slot = (slot + 1) & (capacity - 1);
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				occupied[slot] = true;
+			}
+		}
+	}
+
+	interface Visitor {
+		void visit(int flightNumber, long epochDay, int passengers);
+	}
+
+	private static long keyFor(int flightNumber, long epochDay) {
+		return ((long) flightNumber << 32) | (epochDay & 0xFFFFFFFFL);
+	}
+
+	private static int slotFor(long key, int capacity) {
+		//spread the bits so that consecutive dates of one flight don't cluster
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (capacity - 1);
+	}
+}
@@ -0,0 +1,284 @@
+package solution;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+
+/**
+ * The QualityScoreEvaluator keeps the quality score of a schedule up to date as single allocations are made
+ * and taken back, so that what-if questions can be answered without running QualityScoreCalculator again.
+ * It keeps every aircraft's and crew member's flights in order, along with each crew member's weekly rest and
+ * monthly hours, so an allocation only re-scores the flights either side of it and the week and month it falls in.
+ *
+ * The evaluator works on its own copy of the allocation and never changes the schedule it was created from.
+ * Like QualityScoreCalculator it doesn't check for double booking; use a Schedule for that
+ */
+public class QualityScoreEvaluator {
+
+	private final ScoreModel model;
+	private final Map<FlightInfo, Integer> flightIds = new HashMap<>();
+
+	/**
+	 * Creates an evaluator holding the allocation of every flight in the schedule, whether it is complete or not
+	 * @param aircraft the aircraft that may be allocated
+	 * @param crew the crew that may be allocated
+	 * @param passengers the passenger number forecasts used to score aircraft capacity
+	 * @param schedule the schedule to start from
+	 */
+	public QualityScoreEvaluator(IAircraftDAO aircraft, ICrewDAO crew, IPassengerNumbersDAO passengers, Schedule schedule) {
+
+		//completed flights in the order they were completed, then the rest, so that ties sort as they do in the schedule
+		List<FlightInfo> flights = new ArrayList<>(schedule.getCompletedAllocations());
+		flights.addAll(schedule.getRemainingAllocations());
+		flights.sort(null);
+
+		//every flight has room for the largest cabin crew any aircraft needs, or the cabin crew it already has
+		int mostCabinCrew = 0;
+		for (Aircraft plane : aircraft.getAllAircraft()) {
+			mostCabinCrew = Math.max(mostCabinCrew, plane.getCabinCrewRequired());
+		}
+		int[] cabinCrewSlots = new int[flights.size()];
+		for (int f = 0; f < flights.size(); f++) {
+			List<CabinCrew> cabinCrew = schedule.getCabinCrewOf(flights.get(f));
+			cabinCrewSlots[f] = Math.max(mostCabinCrew, cabinCrew == null ? 0 : cabinCrew.size());
+		}
+
+		model = new ScoreModel(flights, aircraft.getAllAircraft(), crew.getAllCrew(), passengers,
+				schedule.getStartDate(), schedule.getEndDate(), cabinCrewSlots);
+
+		for (int f = 0; f < flights.size(); f++) {
+			FlightInfo flight = flights.get(f);
+			flightIds.put(flight, f);
+			int start = model.slotStart[f];
+			place(start + ScoreModel.AIRCRAFT, schedule.getAircraftFor(flight));
+			place(start + ScoreModel.CAPTAIN, schedule.getCaptainOf(flight));
+			place(start + ScoreModel.FIRST_OFFICER, schedule.getFirstOfficerOf(flight));
+			List<CabinCrew> cabinCrew = schedule.getCabinCrewOf(flight);
+			if (cabinCrew != null) {
+				for (int i = 0; i < cabinCrew.size(); i++) {
+					place(start + ScoreModel.CABIN_CREW + i, cabinCrew.get(i));
+				}
+			}
+		}
+	}
+
+	private void place(int slot, Object resource) {
+		int id = resource == null ? -1 : model.idOf(resource);
+		if (id >= 0) {
+			model.set(slot, id);
+		}
+	}
+
+	ScoreModel model() {
+		return model;
+	}
+
+	/**
+	 * Returns the quality score of the current allocation. Once every flight is complete this is the score
+	 * QualityScoreCalculator would give the same allocation
+	 * @return the quality score of the current allocation
+	 */
+	public long getScore() {
+		return model.getScore();
+	}
+
+	/**
+	 * Returns true if every flight has an aircraft, a captain, a first officer and enough cabin crew
+	 * @return true if every flight's allocation is complete
+	 */
+	public boolean isComplete() {
+		return model.isComplete();
+	}
+
+	/**
+	 * Returns true if the flight has an aircraft, a captain, a first officer and enough cabin crew
+	 * @param flight the flight to check
+	 * @return true if the flight's allocation is complete
+	 */
+	public boolean isComplete(FlightInfo flight) {
+		return model.isComplete(flightOf(flight));
+	}
+
+	/**
+	 * Returns the aircraft allocated to a flight
+	 * @param flight the flight to look up
+	 * @return the aircraft allocated to the flight, or null if it has none
+	 */
+	public Aircraft getAircraftFor(FlightInfo flight) {
+		int id = model.get(model.slotStart[flightOf(flight)] + ScoreModel.AIRCRAFT);
+		return id < 0 ? null : model.aircraft[id];
+	}
+
+	/**
+	 * Returns the captain allocated to a flight
+	 * @param flight the flight to look up
+	 * @return the captain allocated to the flight, or null if it has none
+	 */
+	public Pilot getCaptainOf(FlightInfo flight) {
+		int id = model.get(model.slotStart[flightOf(flight)] + ScoreModel.CAPTAIN);
+		return id < 0 ? null : (Pilot) model.crew[id];
+	}
+
+	/**
+	 * Returns the first officer allocated to a flight
+	 * @param flight the flight to look up
+	 * @return the first officer allocated to the flight, or null if it has none
+	 */
+	public Pilot getFirstOfficerOf(FlightInfo flight) {
+		int id = model.get(model.slotStart[flightOf(flight)] + ScoreModel.FIRST_OFFICER);
+		return id < 0 ? null : (Pilot) model.crew[id];
+	}
+
+	/**
+	 * Returns the cabin crew allocated to a flight
+	 * @param flight the flight to look up
+	 * @return a new list of the cabin crew allocated to the flight, which is empty if it has none
+	 */
+	public List<CabinCrew> getCabinCrewOf(FlightInfo flight) {
+		int f = flightOf(flight);
+		List<CabinCrew> cabinCrew = new ArrayList<>();
+		for (int s = model.slotStart[f] + ScoreModel.CABIN_CREW; s < model.slotStart[f + 1]; s++) {
+			if (model.get(s) >= 0) {
+				cabinCrew.add((CabinCrew) model.crew[model.get(s)]);
+			}
+		}
+		return cabinCrew;
+	}
+
+	/**
+	 * Allocates an aircraft to a flight, replacing any aircraft it already has
+	 * @param aircraft the aircraft to allocate
+	 * @param flight the flight to allocate it to
+	 * @return the change in the quality score
+	 */
+	public long allocateAircraftTo(Aircraft aircraft, FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.AIRCRAFT, idOf(aircraft));
+	}
+
+	/**
+	 * Allocates a captain to a flight, replacing any captain it already has
+	 * @param captain the pilot to allocate as captain
+	 * @param flight the flight to allocate them to
+	 * @return the change in the quality score
+	 */
+	public long allocateCaptainTo(Pilot captain, FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.CAPTAIN, idOf(captain));
+	}
+
+	/**
+	 * Allocates a first officer to a flight, replacing any first officer it already has
+	 * @param firstOfficer the pilot to allocate as first officer
+	 * @param flight the flight to allocate them to
+	 * @return the change in the quality score
+	 */
+	public long allocateFirstOfficerTo(Pilot firstOfficer, FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.FIRST_OFFICER, idOf(firstOfficer));
+	}
+
+	/**
+	 * Adds a cabin crew member to a flight
+	 * @param cabinCrew the cabin crew member to allocate
+	 * @param flight the flight to allocate them to
+	 * @return the change in the quality score, or 0 if they are already allocated to the flight
+	 * @throws IllegalStateException if the flight already has as many cabin crew as any aircraft needs
+	 */
+	public long allocateCabinCrewTo(CabinCrew cabinCrew, FlightInfo flight) {
+		int f = flightOf(flight);
+		int id = idOf(cabinCrew);
+		if (cabinCrewSlotOf(f, id) >= 0) {
+			return 0;
+		}
+		int empty = cabinCrewSlotOf(f, -1);
+		if (empty < 0) {
+			throw new IllegalStateException("Flight " + flight + " has no room for more cabin crew");
+		}
+		return model.set(empty, id);
+	}
+
+	/**
+	 * Removes the aircraft allocated to a flight, if it has one
+	 * @param flight the flight to change
+	 * @return the change in the quality score
+	 */
+	public long unallocateAircraftFrom(FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.AIRCRAFT, -1);
+	}
+
+	/**
+	 * Removes the captain allocated to a flight, if it has one
+	 * @param flight the flight to change
+	 * @return the change in the quality score
+	 */
+	public long unallocateCaptainFrom(FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.CAPTAIN, -1);
+	}
+
+	/**
+	 * Removes the first officer allocated to a flight, if it has one
+	 * @param flight the flight to change
+	 * @return the change in the quality score
+	 */
+	public long unallocateFirstOfficerFrom(FlightInfo flight) {
+		return model.set(model.slotStart[flightOf(flight)] + ScoreModel.FIRST_OFFICER, -1);
+	}
+
+	/**
+	 * Removes a cabin crew member from a flight, if they are allocated to it
+	 * @param cabinCrew the cabin crew member to remove
+	 * @param flight the flight to change
+	 * @return the change in the quality score
+	 */
+	public long unallocateCabinCrewFrom(CabinCrew cabinCrew, FlightInfo flight) {
+		int slot = cabinCrewSlotOf(flightOf(flight), idOf(cabinCrew));
+		return slot < 0 ? 0 : model.set(slot, -1);
+	}
+
+	/**
+	 * Builds a new Schedule holding the current allocation, with every valid flight completed
+	 * @param routes the routes the original schedule was made from
+	 * @return a new Schedule holding the current allocation
+	 * @throws DoubleBookedException if the current allocation double books an aircraft or crew member,
+	 * or makes the same pilot both captain and first officer of a flight
+	 * @throws InvalidAllocationException if the schedule refuses to complete a valid flight
+	 */
+	public Schedule toSchedule(IRouteDAO routes) throws DoubleBookedException, InvalidAllocationException {
+		return model.toSchedule(routes, model.snapshot());
+	}
+
+	private int flightOf(FlightInfo flight) {
+		Integer id = flightIds.get(flight);
+		if (id == null) {
+			throw new IllegalArgumentException("Flight " + flight + " is not in the schedule being evaluated");
+		}
+		return id;
+	}
+
+	private int idOf(Object resource) {
+		int id = model.idOf(resource);
+		if (id < 0) {
+			throw new IllegalArgumentException(resource + " is not one of the aircraft or crew being evaluated");
+		}
+		return id;
+	}
+
+	private int cabinCrewSlotOf(int flight, int id) {
+		for (int s = model.slotStart[flight] + ScoreModel.CABIN_CREW; s < model.slotStart[flight + 1]; s++) {
+			if (model.get(s) == id) {
+				return s;
+			}
+		}
+		return -1;
+	}
+}
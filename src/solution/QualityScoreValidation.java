@@ -0,0 +1,201 @@
+package solution;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DataLoadingException;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Pilot.Rank;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+
+/**
+ * This class checks QualityScoreEvaluator against QualityScoreCalculator on the sample datasets in ./data.
+ * For each dataset it scores the generated schedule both ways, then makes rounds of random reallocations through
+ * the evaluator, and after each round rebuilds the schedule and checks the calculator agrees with the running total
+ * of the changes the evaluator reported
+ *
+ * Usage: java solution.QualityScoreValidation [rounds [changes per round [seed]]]
+ * Exits with status 1 if any score disagrees
+ */
+public class QualityScoreValidation {
+
+	private final AircraftDAO aircraft = new AircraftDAO();
+	private final CrewDAO crew = new CrewDAO();
+	private final RouteDAO routes = new RouteDAO();
+	private final PassengerNumbersDAO numbers = new PassengerNumbersDAO();
+	private final Random random;
+
+	private QualityScoreEvaluator evaluator;
+	private List<FlightInfo> flights;
+	private AvailabilityIndex availability;
+
+	public QualityScoreValidation(long seed) {
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args) throws DataLoadingException, DoubleBookedException, InvalidAllocationException {
+
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int changes = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+		boolean passed = true;
+		passed &= new QualityScoreValidation(seed).validate("mini", "mini_aircraft.csv", "mini_crew.json", "mini_passengers.db", "mini_routes.xml",
+				LocalDate.parse("2020-07-01"), LocalDate.parse("2020-08-26"), rounds, changes);
+		passed &= new QualityScoreValidation(seed).validate("schedule", "schedule_aircraft.csv", "schedule_crew.json", "schedule_passengers.db", "schedule_routes.xml",
+				LocalDate.parse("2020-07-01"), LocalDate.parse("2020-07-08"), rounds, changes);
+		passed &= new QualityScoreValidation(seed).validate("full", "aircraft.csv", "crew.json", "passengernumbers.db", "routes.xml",
+				LocalDate.parse("2020-07-01"), LocalDate.parse("2020-08-31"), rounds, changes);
+
+		System.out.println(passed ? "All scores agree" : "Some scores disagree");
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Loads a dataset from ./data, generates a schedule for it and checks the evaluator against the calculator
+	 * @return true if every score agreed
+	 * @throws DataLoadingException if the aircraft, crew or routes could not be loaded
+	 * @throws DoubleBookedException if a reallocation double booked someone, which would be a bug in this class
+	 * @throws InvalidAllocationException if a reallocated flight couldn't be completed, which would be a bug in this class
+	 */
+	public boolean validate(String name, String aircraftFile, String crewFile, String passengersFile, String routesFile,
+			LocalDate startDate, LocalDate endDate, int rounds, int changes) throws DataLoadingException, DoubleBookedException, InvalidAllocationException {
+
+		Path data = Paths.get("./data");
+		if (!Files.exists(data.resolve(aircraftFile))) {
+			System.out.println("Skipping " + name + ": " + data.resolve(aircraftFile) + " does not exist");
+			return true;
+		}
+		aircraft.loadAircraftData(data.resolve(aircraftFile));
+		crew.loadCrewData(data.resolve(crewFile));
+		routes.loadRouteData(data.resolve(routesFile));
+		try {
+			numbers.loadPassengerNumbersData(data.resolve(passengersFile));
+		} catch (DataLoadingException e) {
+			//the scores can still be compared, every flight is just scored as having no forecast
+			System.out.println("No passenger numbers for " + name + ": " + e.getCause());
+		}
+
+		Schedule schedule = new Scheduler().generateSchedule(aircraft, crew, routes, numbers, startDate, endDate);
+		if (!schedule.isCompleted()) {
+			//the calculator only scores complete schedules, so fill in whatever the scheduler couldn't
+			schedule = new ScheduleOptimiser(aircraft, crew, routes, numbers, schedule).optimise(0);
+		}
+
+		evaluator = new QualityScoreEvaluator(aircraft, crew, numbers, schedule);
+		flights = new ArrayList<>(schedule.getCompletedAllocations());
+		availability = new AvailabilityIndex();
+		for (FlightInfo flight : flights) {
+			availability.book(schedule.getAircraftFor(flight), flight);
+			availability.book(schedule.getCaptainOf(flight), flight);
+			availability.book(schedule.getFirstOfficerOf(flight), flight);
+			for (CabinCrew member : schedule.getCabinCrewOf(flight)) {
+				availability.book(member, flight);
+			}
+		}
+
+		boolean passed = check(name, "generated schedule", schedule, evaluator.getScore());
+		long expected = evaluator.getScore();
+		long evaluatorNanos = 0;
+		int made = 0;
+
+		for (int round = 1; round <= rounds; round++) {
+			for (int i = 0; i < changes; i++) {
+				long start = System.nanoTime();
+				long delta = reallocate();
+				evaluatorNanos += System.nanoTime() - start;
+				if (delta != Long.MIN_VALUE) {
+					expected += delta;
+					made++;
+				}
+			}
+			schedule = evaluator.toSchedule(routes);
+			passed &= check(name, "round " + round, schedule, expected);
+		}
+
+		long start = System.nanoTime();
+		new QualityScoreCalculator(aircraft, crew, numbers, schedule).calculateQualityScore();
+		long calculatorNanos = System.nanoTime() - start;
+		System.out.println(String.format("%s: %d reallocations at %.1f us each, %.1f ms for the calculator to score the schedule once",
+				name, made, made == 0 ? 0 : evaluatorNanos / 1e3 / made, calculatorNanos / 1e6));
+		return passed;
+	}
+
+	private boolean check(String name, String stage, Schedule schedule, long expected) {
+		long calculated = new QualityScoreCalculator(aircraft, crew, numbers, schedule).calculateQualityScore();
+		boolean agrees = calculated == expected && calculated == evaluator.getScore();
+		if (!agrees) {
+			System.out.println(String.format("%s, %s: the calculator gave %d, the evaluator %d and its changes added up to %d",
+					name, stage, calculated, evaluator.getScore(), expected));
+		}
+		return agrees;
+	}
+
+	/*
+	 * Gives a random flight a different aircraft, pilot or cabin crew member that is free to fly it, keeping every
+	 * flight complete. Returns the change in score the evaluator reported, or Long.MIN_VALUE if nothing was changed
+	 */
+	private long reallocate() {
+		FlightInfo flight = flights.get(random.nextInt(flights.size()));
+		int kind = random.nextInt(4);
+
+		if (kind == 0) {
+			Aircraft current = evaluator.getAircraftFor(flight);
+			Aircraft replacement = pick(aircraft.getAllAircraft());
+			if (replacement == current || replacement.getCabinCrewRequired() > evaluator.getCabinCrewOf(flight).size()
+					|| !isFree(replacement, flight)) {
+				return Long.MIN_VALUE;
+			}
+			swapBooking(current, replacement, flight);
+			return evaluator.allocateAircraftTo(replacement, flight);
+		}
+
+		if (kind == 3) {
+			List<CabinCrew> cabinCrew = evaluator.getCabinCrewOf(flight);
+			CabinCrew current = cabinCrew.get(random.nextInt(cabinCrew.size()));
+			CabinCrew replacement = pick(crew.getAllCabinCrew());
+			if (cabinCrew.contains(replacement) || !isFree(replacement, flight)) {
+				return Long.MIN_VALUE;
+			}
+			swapBooking(current, replacement, flight);
+			return evaluator.unallocateCabinCrewFrom(current, flight) + evaluator.allocateCabinCrewTo(replacement, flight);
+		}
+
+		Pilot captain = evaluator.getCaptainOf(flight);
+		Pilot firstOfficer = evaluator.getFirstOfficerOf(flight);
+		Pilot replacement = pick(crew.getAllPilots());
+		//mostly keep pilots in their own seat, as a schedule usually would
+		if (replacement == captain || replacement == firstOfficer || (replacement.getRank() == Rank.CAPTAIN) != (kind == 1) && random.nextInt(5) > 0
+				|| !isFree(replacement, flight)) {
+			return Long.MIN_VALUE;
+		}
+		swapBooking(kind == 1 ? captain : firstOfficer, replacement, flight);
+		return kind == 1 ? evaluator.allocateCaptainTo(replacement, flight) : evaluator.allocateFirstOfficerTo(replacement, flight);
+	}
+
+	private <T> T pick(List<T> list) {
+		return list.get(random.nextInt(list.size()));
+	}
+
+	private boolean isFree(Object resource, FlightInfo flight) {
+		return availability.isFreeInAnyOrder(resource, AvailabilityIndex.toSeconds(flight.getDepartureDateTime()),
+				AvailabilityIndex.toSeconds(flight.getLandingDateTime()));
+	}
+
+	private void swapBooking(Object current, Object replacement, FlightInfo flight) {
+		availability.release(current, flight);
+		availability.book(replacement, flight);
+	}
+}
@@ -1,13 +1,15 @@
 package solution;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.*;
 import java.util.*;
 
-import javax.xml.parsers.*;
-
-import org.w3c.dom.*;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import baseclasses.DataLoadingException;
 import baseclasses.IRouteDAO;
@@ -19,7 +21,16 @@ import baseclasses.Route;
  */
 public class RouteDAO implements IRouteDAO {
 	
+	private static final String[] FIELDS = { "FlightNumber", "DayOfWeek", "DepartureTime", "DepartureAirport",
+			"DepartureAirportCode", "ArrivalTime", "ArrivalAirport", "ArrivalAirportCode", "Duration" };
+	
 	List<Route> routes = new ArrayList<>();
+	
+	//indexes over the routes above, built as each route is loaded
+	private Map<DayOfWeek, List<Route>> routesByDate = new EnumMap<>(DayOfWeek.class);
+	private Map<String, List<Route>> routesByDayOfWeek = new HashMap<>();
+	private Map<String, List<Route>> routesByDepartureAirport = new HashMap<>();
+	private Map<String, Map<String, List<Route>>> routesByDepartureAirportAndDay = new HashMap<>();
 
 	/**
 	 * Finds all flights that depart on the specified day of the week
@@ -28,16 +39,7 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public List<Route> findRoutesByDayOfWeek(String dayOfWeek) {
-		List<Route> currentRoutes = new ArrayList<>();
-		
-		for (Route route : routes) {
-			if (route.getDayOfWeek().equals(dayOfWeek)) {
-				currentRoutes.add(route);
-			}
-		}
-		
-		return currentRoutes;
-
+		return lookup(routesByDayOfWeek, dayOfWeek);
 	}
 
 	/**
@@ -48,15 +50,7 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public List<Route> findRoutesByDepartureAirportAndDay(String airportCode, String dayOfWeek) {
-		List<Route> currentRoutes = new ArrayList<>();
-		
-		for (Route route : routes) {
-			if (route.getDayOfWeek().equals(dayOfWeek) && route.getDepartureAirportCode().equals(airportCode)) {
-				currentRoutes.add(route); 
-			}
-		}
-		
-		return currentRoutes;
+		return lookup(routesByDepartureAirportAndDay.getOrDefault(airportCode, Collections.emptyMap()), dayOfWeek);
 	}
 
 	/**
@@ -66,16 +60,7 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public List<Route> findRoutesDepartingAirport(String airportCode) {
-
-		List<Route> currentRoutes = new ArrayList<>();
-		
-		for (Route route : routes) {
-			if (route.getDepartureAirportCode().equals(airportCode)) {
-				currentRoutes.add(route);
-			}
-		}
-		
-		return currentRoutes;
+		return lookup(routesByDepartureAirport, airportCode);
 	}
 
 	/**
@@ -85,15 +70,7 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public List<Route> findRoutesbyDate(LocalDate date) {
-		List<Route> currentRoutes = new ArrayList<>();
-		
-		for (Route route : routes) {
-			if (date.getDayOfWeek().toString().contains(route.getDayOfWeek().toUpperCase())) {
-				currentRoutes.add(route);
-			}
-		}
-		
-		return currentRoutes;
+		return lookup(routesByDate, date.getDayOfWeek());
 	}
 
 	/**
@@ -122,52 +99,124 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public void loadRouteData(Path path) throws DataLoadingException {
-		try {
-			DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			Document doc = db.parse(path.toString());
-			Element root = doc.getDocumentElement();
+		XMLStreamReader reader = null;
+		try (InputStream in = Files.newInputStream(path)) {
+			//a factory per load, as factories are not safe to share between threads loading at once
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			reader = factory.createXMLStreamReader(in);
 			
-			NodeList routeNodes = root.getElementsByTagName("Route");
-
+			//a single forward pass: each Route's fields are collected as they stream past, then the Route is built.
+			//nothing is added to the DAO until the whole document has parsed, so a file that fails partway through adds no routes
+			String[] fields = null;
+			List<Route> loaded = new ArrayList<>();
 			
-			for (int i=0; i<routeNodes.getLength(); i++) {
-				
-				Route route = new Route();
+			while (reader.hasNext()) {
+				int event = reader.next();
 				
-				Node currentNode = routeNodes.item(i);
-			
-				if (currentNode.getNodeType() == Node.ELEMENT_NODE) {
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String tagName = reader.getLocalName();
 					
-					Element currentRoute = (Element) currentNode;
+					if (tagName.equals("Route")) {
+						fields = new String[FIELDS.length];
+					} else if (fields != null) {
+						int field = fieldIndex(tagName);
+						if (field >= 0 && fields[field] == null) {
+							fields[field] = reader.getElementText();
+						}
+					}
 					
-					route.setFlightNumber(Integer.parseInt(getValueFromXMLKey(currentRoute, "FlightNumber")));
-					route.setDayOfWeek(getValueFromXMLKey(currentRoute, "DayOfWeek"));
-					route.setDepartureTime(LocalTime.parse(getValueFromXMLKey(currentRoute, "DepartureTime")));
-					route.setDepartureAirport(getValueFromXMLKey(currentRoute, "DepartureAirport"));
-					route.setDepartureAirportCode(getValueFromXMLKey(currentRoute, "DepartureAirportCode"));
-					route.setArrivalTime(LocalTime.parse(getValueFromXMLKey(currentRoute, "ArrivalTime")));
-					route.setArrivalAirport(getValueFromXMLKey(currentRoute, "ArrivalAirport"));
-					route.setArrivalAirportCode(getValueFromXMLKey(currentRoute, "ArrivalAirportCode"));
-					route.setDuration(Duration.parse(getValueFromXMLKey(currentRoute, "Duration")));
+				} else if (event == XMLStreamConstants.END_ELEMENT && fields != null && reader.getLocalName().equals("Route")) {
+					loaded.add(toRoute(fields));
+					fields = null;
 				}
-				
-				routes.add(route);
-
 			}
 			
-		} catch (ParserConfigurationException | SAXException | IOException | NumberFormatException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			throw new DataLoadingException();
+			addAll(loaded);
+			
+		} catch (IOException | XMLStreamException | RuntimeException e) {
+			throw new DataLoadingException(e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					//nothing more can go wrong with this file once it has been read
+				}
+			}
 		}
 
 	}
 
-	private String getValueFromXMLKey(Element currentRoute, String tagName) {
-		return currentRoute.getElementsByTagName(tagName).item(0).getTextContent();
+	/**
+	 * Adds every route loaded by another RouteDAO to this one, as if its files had been loaded here
+	 * @param other the RouteDAO to copy routes from
+	 */
+	void addAll(RouteDAO other) {
+		addAll(other.routes);
 	}
 	
+	/**
+	 * Adds the given routes to this RouteDAO, as if they had been loaded from a file
+	 * @param routes the routes to add
+	 */
+	void addAll(List<Route> routes) {
+		for (Route route : routes) {
+			addRoute(route);
+		}
+	}
+	
+	private void addRoute(Route route) {
+		routes.add(route);
+		
+		//a route runs on every day whose name contains its three letter code, e.g. "Tue" on TUESDAY
+		String dayCode = route.getDayOfWeek().toUpperCase();
+		for (DayOfWeek day : DayOfWeek.values()) {
+			if (day.toString().contains(dayCode)) {
+				routesByDate.computeIfAbsent(day, d -> new ArrayList<>()).add(route);
+			}
+		}
+		
+		routesByDayOfWeek.computeIfAbsent(route.getDayOfWeek(), d -> new ArrayList<>()).add(route);
+		routesByDepartureAirport.computeIfAbsent(route.getDepartureAirportCode(), a -> new ArrayList<>()).add(route);
+		routesByDepartureAirportAndDay.computeIfAbsent(route.getDepartureAirportCode(), a -> new HashMap<>())
+				.computeIfAbsent(route.getDayOfWeek(), d -> new ArrayList<>()).add(route);
+	}
 	
+	private static <K> List<Route> lookup(Map<K, List<Route>> index, K key) {
+		List<Route> found = index.get(key);
+		return found == null ? Collections.emptyList() : Collections.unmodifiableList(found);
+	}
+
+	private Route toRoute(String[] fields) {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i] == null) {
+				throw new IllegalArgumentException("Route is missing its " + FIELDS[i]);
+			}
+		}
+		
+		Route route = new Route();
+		route.setFlightNumber(Integer.parseInt(fields[0]));
+		route.setDayOfWeek(fields[1]);
+		route.setDepartureTime(LocalTime.parse(fields[2]));
+		route.setDepartureAirport(fields[3]);
+		route.setDepartureAirportCode(fields[4]);
+		route.setArrivalTime(LocalTime.parse(fields[5]));
+		route.setArrivalAirport(fields[6]);
+		route.setArrivalAirportCode(fields[7]);
+		route.setDuration(Duration.parse(fields[8]));
+		return route;
+	}
+
+	private static int fieldIndex(String tagName) {
+		for (int i = 0; i < FIELDS.length; i++) {
+			if (FIELDS[i].equals(tagName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
 	/**
 	 * Unloads all of the crew currently loaded, ready to start again if needed
@@ -175,6 +224,10 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public void reset() {
 		routes = new ArrayList<>();
+		routesByDate = new EnumMap<>(DayOfWeek.class);
+		routesByDayOfWeek = new HashMap<>();
+		routesByDepartureAirport = new HashMap<>();
+		routesByDepartureAirportAndDay = new HashMap<>();
 
 	}
 
@@ -0,0 +1,499 @@
+package solution;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import baseclasses.CabinCrew;
+import baseclasses.DoubleBookedException;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot.Rank;
+import baseclasses.Schedule;
+import baseclasses.SchedulerRunner;
+
+/**
+ * The ScheduleOptimiser improves an existing schedule by simulated annealing for as long as it is allowed to run.
+ * Each move either gives one flight a different aircraft, captain, first officer or cabin crew member,
+ * or swaps one of those between two flights departing close together. Moves never double book anyone and
+ * never leave a complete flight without enough crew. Each move is scored in a few operations by a ScoreModel,
+ * the same model QualityScoreEvaluator uses, rather than by running QualityScoreCalculator over the whole schedule.
+ *
+ * Before improving anything, every flight the starting schedule left incomplete is filled in where there are free
+ * aircraft and crew for it. Only complete flights are scored, so filling them in raises the score, and the result
+ * can score worse than the starting schedule did; it always has at least as many complete flights, though.
+ * From then on the best allocation seen is kept throughout, so the optimiser can be stopped at any moment
+ * and still hand back a schedule at least as good as the one it had once the flights were filled in
+ */
+public class ScheduleOptimiser {
+
+	//starting and finishing temperatures, in quality score points
+	private static final double HOTTEST = 10000;
+	private static final double COLDEST = 1;
+	//how many flights either side of a flight to look at for a partner to swap with
+	private static final int SWAP_DISTANCE = 200;
+	//how many moves to make between looking at the clock
+	private static final int MOVES_PER_CHECK = 1024;
+	//how often, at most, an improved schedule is handed to the runner
+	private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+
+	private final IRouteDAO routes;
+	private final ScoreModel model;
+	private final AvailabilityIndex availability = new AvailabilityIndex();
+
+	//candidates[kind][aircraft] are the crew qualified for that aircraft's type, candidates[kind][aircraft count] are all of them
+	private final int[][][] candidates = new int[ScoreModel.CABIN_CREW + 1][][];
+
+	private SchedulerRunner runner;
+	private Random random = new Random();
+	private volatile boolean stopRequested = false;
+
+	//the best allocation is the current one with every change in the journal undone, or bestSlots if that is set
+	private long bestScore;
+	private int[] bestSlots;
+	private final List<int[]> journal = new ArrayList<>();
+
+	//the changes made by the move being tried, so that it can be taken back
+	private final int[] moveSlots = new int[2];
+	private final int[] moveOld = new int[2];
+	private int moveLength = 0;
+
+	private long movesTried = 0;
+	private long movesAccepted = 0;
+
+	/**
+	 * Creates an optimiser that starts from the given schedule, which is not changed
+	 * @param aircraft the aircraft that may be allocated
+	 * @param crew the crew that may be allocated
+	 * @param routes the routes the schedule was made from
+	 * @param passengers the passenger number forecasts the schedule is scored against
+	 * @param schedule the schedule to start from
+	 */
+	public ScheduleOptimiser(IAircraftDAO aircraft, ICrewDAO crew, IRouteDAO routes, IPassengerNumbersDAO passengers, Schedule schedule) {
+
+		this.routes = routes;
+		model = new QualityScoreEvaluator(aircraft, crew, passengers, schedule).model();
+		for (int slot = 0; slot < model.slotStart[model.flightCount()]; slot++) {
+			int id = model.get(slot);
+			if (id >= 0) {
+				int flight = model.flightOf(slot);
+				availability.book(resourceOf(slot, id), model.departureOf(flight), model.landingOf(flight));
+			}
+		}
+
+		//the crew are grouped by the scheduler's model, then translated to this model's ids, keeping them in load order
+		SchedulingModel scheduling = new SchedulingModel(aircraft.getAllAircraft(), crew.getAllPilots(), crew.getAllCabinCrew(), routes.getAllRoutes());
+		SchedulingModel.Pools pools = scheduling.pools(aircraft.getAllAircraft(), crew.getAllPilots(), crew.getAllCabinCrew());
+		long[] set = new long[scheduling.words];
+		int planes = model.aircraft.length;
+		for (int kind = ScoreModel.CAPTAIN; kind <= ScoreModel.CABIN_CREW; kind++) {
+			candidates[kind] = new int[planes + 1][];
+		}
+		Map<String, int[][]> byType = new HashMap<>();
+		for (int a = 0; a < planes; a++) {
+			int type = scheduling.typeIdOf(model.aircraft[a].getTypeCode());
+			int[][] qualified = byType.computeIfAbsent(model.aircraft[a].getTypeCode(), t -> type < 0 ? new int[3][0] : new int[][] {
+				idsOf(scheduling, pools.pilots(Rank.CAPTAIN, type, set)), idsOf(scheduling, pools.pilots(Rank.FIRST_OFFICER, type, set)),
+				idsOf(scheduling, pools.cabinCrew(type, set)) });
+			candidates[ScoreModel.CAPTAIN][a] = qualified[0];
+			candidates[ScoreModel.FIRST_OFFICER][a] = qualified[1];
+			candidates[ScoreModel.CABIN_CREW][a] = qualified[2];
+		}
+		candidates[ScoreModel.CAPTAIN][planes] = idsOf(scheduling, pools.pilots(Rank.CAPTAIN, set));
+		candidates[ScoreModel.FIRST_OFFICER][planes] = idsOf(scheduling, pools.pilots(Rank.FIRST_OFFICER, set));
+		candidates[ScoreModel.CABIN_CREW][planes] = idsOf(scheduling, pools.cabinCrew(set));
+
+		bestScore = model.getScore();
+	}
+
+	/*
+	 * This model's ids of the crew in a bitset over the scheduling model's ids, in the scheduling model's order
+	 */
+	private int[] idsOf(SchedulingModel scheduling, long[] set) {
+		int[] ids = new int[scheduling.resources.length];
+		int count = 0;
+		for (int w = 0; w < set.length; w++) {
+			for (long word = set[w]; word != 0; word &= word - 1) {
+				int id = model.idOf(scheduling.resources[(w << 6) + Long.numberOfTrailingZeros(word)]);
+				if (id >= 0) {
+					ids[count++] = id;
+				}
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Sets the runner that improved schedules are reported to while the optimiser runs
+	 * @param runner the runner to report to, or null to stop reporting
+	 */
+	public void setSchedulerRunner(SchedulerRunner runner) {
+		this.runner = runner;
+	}
+
+	/**
+	 * Seeds the optimiser's choice of moves, so that runs with the same budget can be repeated
+	 * @param seed the seed for the random moves
+	 */
+	public void setSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Asks optimise() to return the best schedule it has found as soon as possible. Safe to call from any thread
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Returns the quality score of the best allocation found so far
+	 * @return the quality score of the best allocation found so far
+	 */
+	public long getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Returns the number of moves tried by the last call to optimise()
+	 * @return the number of moves tried
+	 */
+	public long getMovesTried() {
+		return movesTried;
+	}
+
+	/**
+	 * Returns the number of moves kept by the last call to optimise()
+	 * @return the number of moves kept
+	 */
+	public long getMovesAccepted() {
+		return movesAccepted;
+	}
+
+	/**
+	 * Fills in any flight the starting schedule left incomplete, then improves the schedule until the time runs out
+	 * or stop() is called
+	 * @param budgetMillis how long to spend improving the schedule, in milliseconds
+	 * @return the best schedule found, as a new Schedule. It has at least as many complete flights as the starting
+	 * schedule, and scores no worse than the starting schedule with its incomplete flights filled in
+	 */
+	public Schedule optimise(long budgetMillis) {
+
+		long startNanos = System.nanoTime();
+		long budgetNanos = budgetMillis * 1_000_000L;
+		long nextReportNanos = startNanos + REPORT_INTERVAL_NANOS;
+		boolean improvedSinceReport = false;
+		movesTried = 0;
+		movesAccepted = 0;
+
+		complete();
+		newBest();
+
+		double temperature = HOTTEST;
+		int flights = model.flightCount();
+
+		while (flights > 0 && !stopRequested) {
+
+			for (int i = 0; i < MOVES_PER_CHECK; i++) {
+				movesTried++;
+				int flight = random.nextInt(flights);
+				int kind = random.nextInt(10);
+				kind = kind < 3 ? ScoreModel.AIRCRAFT : kind < 6 ? ScoreModel.CAPTAIN + (kind & 1) : ScoreModel.CABIN_CREW;
+
+				moveLength = 0;
+				int mark = bestSlots == null ? journal.size() : -1;
+				long delta = random.nextBoolean() ? reassign(flight, kind) : swap(flight, kind);
+				if (delta == Long.MAX_VALUE) {
+					continue;
+				}
+				if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+					movesAccepted++;
+					if (model.getScore() < bestScore) {
+						newBest();
+						improvedSinceReport = true;
+					}
+				} else {
+					undo(mark);
+				}
+			}
+
+			long now = System.nanoTime();
+			long elapsed = now - startNanos;
+			if (elapsed >= budgetNanos) {
+				break;
+			}
+			temperature = HOTTEST * Math.pow(COLDEST / HOTTEST, (double) elapsed / budgetNanos);
+
+			if (runner != null && improvedSinceReport && now - nextReportNanos >= 0) {
+				runner.reportBestScheduleSoFar(getBestSchedule());
+				nextReportNanos = now + REPORT_INTERVAL_NANOS;
+				improvedSinceReport = false;
+			}
+		}
+
+		stopRequested = false;
+		Schedule best = getBestSchedule();
+		if (runner != null) {
+			runner.reportBestScheduleSoFar(best);
+		}
+		return best;
+	}
+
+	/**
+	 * Builds a new Schedule holding the best allocation found so far
+	 * @return the best schedule found so far
+	 */
+	public Schedule getBestSchedule() {
+
+		int[] slots = bestSlots != null ? bestSlots.clone() : model.snapshot();
+		if (bestSlots == null) {
+			for (int i = journal.size() - 1; i >= 0; i--) {
+				slots[journal.get(i)[0]] = journal.get(i)[1];
+			}
+		}
+
+		try {
+			return model.toSchedule(routes, slots);
+		} catch (DoubleBookedException | InvalidAllocationException e) {
+			//every move is checked against the availability index first, so this would be a bug in the optimiser
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Gives every incomplete flight whatever free aircraft and crew add the fewest points
+	 */
+	private void complete() {
+		for (int f = 0; f < model.flightCount(); f++) {
+			if (model.isComplete(f)) {
+				continue;
+			}
+			int start = model.slotStart[f];
+			if (model.get(start + ScoreModel.AIRCRAFT) < 0) {
+				fillCheapest(start + ScoreModel.AIRCRAFT, null);
+			}
+			int plane = model.get(start + ScoreModel.AIRCRAFT);
+			if (plane < 0) {
+				continue;
+			}
+			for (int kind = ScoreModel.CAPTAIN; kind <= ScoreModel.FIRST_OFFICER; kind++) {
+				if (model.get(start + kind) < 0 && !fillCheapest(start + kind, candidates[kind][plane])) {
+					fillCheapest(start + kind, candidates[kind][model.aircraft.length]);
+				}
+			}
+			int missing = model.cabinCrewRequiredBy(plane) - model.cabinCrewAllocatedTo(f);
+			for (int s = start + ScoreModel.CABIN_CREW; s < model.slotStart[f + 1] && missing > 0; s++) {
+				if (model.get(s) < 0) {
+					if (!fillCheapest(s, candidates[ScoreModel.CABIN_CREW][plane])) {
+						fillCheapest(s, candidates[ScoreModel.CABIN_CREW][model.aircraft.length]);
+					}
+					if (model.get(s) >= 0) {
+						missing--;
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Tries every free candidate in an empty slot and keeps the one that adds the fewest points.
+	 * A null list of candidates means every aircraft
+	 */
+	private boolean fillCheapest(int slot, int[] ids) {
+		int flight = model.flightOf(slot);
+		int count = ids == null ? model.aircraft.length : ids.length;
+		int best = -1;
+		long bestDelta = Long.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			int id = ids == null ? i : ids[i];
+			if (!canTake(slot, id, flight)) {
+				continue;
+			}
+			long delta = model.set(slot, id);
+			model.set(slot, -1);
+			if (delta < bestDelta) {
+				bestDelta = delta;
+				best = id;
+			}
+		}
+		if (best < 0) {
+			return false;
+		}
+		moveLength = 0;
+		change(slot, best);
+		return true;
+	}
+
+	/*
+	 * Puts a different resource in one of a flight's slots. Returns the change in score, or Long.MAX_VALUE if no move was made
+	 */
+	private long reassign(int flight, int kind) {
+		int slot = pickSlot(flight, kind);
+		if (slot < 0) {
+			return Long.MAX_VALUE;
+		}
+		int candidate;
+		if (kind == ScoreModel.AIRCRAFT) {
+			candidate = random.nextInt(model.aircraft.length);
+		} else {
+			int plane = model.get(model.slotStart[flight] + ScoreModel.AIRCRAFT);
+			//mostly stick to qualified crew, but now and then try anyone of the right rank
+			int[] ids = candidates[kind][plane < 0 || random.nextInt(5) == 0 ? model.aircraft.length : plane];
+			if (ids.length == 0) {
+				return Long.MAX_VALUE;
+			}
+			candidate = ids[random.nextInt(ids.length)];
+		}
+		if (!canTake(slot, candidate, flight)) {
+			return Long.MAX_VALUE;
+		}
+		return change(slot, candidate);
+	}
+
+	/*
+	 * Swaps the resources in the same kind of slot of two nearby flights. Returns the change in score, or Long.MAX_VALUE if no move was made
+	 */
+	private long swap(int flight, int kind) {
+		int other = flight + random.nextInt(2 * SWAP_DISTANCE + 1) - SWAP_DISTANCE;
+		if (other == flight || other < 0 || other >= model.flightCount()) {
+			return Long.MAX_VALUE;
+		}
+		int slot = pickSlot(flight, kind);
+		int otherSlot = pickSlot(other, kind);
+		if (slot < 0 || otherSlot < 0) {
+			return Long.MAX_VALUE;
+		}
+		int first = model.get(slot);
+		int second = model.get(otherSlot);
+		if (first == second) {
+			return Long.MAX_VALUE;
+		}
+
+		//each resource has to be free for the other flight once it has let go of its own
+		Object firstResource = resourceOf(slot, first);
+		Object secondResource = resourceOf(otherSlot, second);
+		availability.release(firstResource, model.departureOf(flight), model.landingOf(flight));
+		availability.release(secondResource, model.departureOf(other), model.landingOf(other));
+		boolean possible = canTake(otherSlot, first, other) && canTake(slot, second, flight);
+		availability.book(firstResource, model.departureOf(flight), model.landingOf(flight));
+		availability.book(secondResource, model.departureOf(other), model.landingOf(other));
+		if (!possible) {
+			return Long.MAX_VALUE;
+		}
+		return change(slot, second) + change(otherSlot, first);
+	}
+
+	/*
+	 * A filled slot of the given kind on the flight, or -1 if it has none
+	 */
+	private int pickSlot(int flight, int kind) {
+		int start = model.slotStart[flight];
+		if (kind < ScoreModel.CABIN_CREW) {
+			return model.get(start + kind) >= 0 ? start + kind : -1;
+		}
+		int cabinSlots = model.slotStart[flight + 1] - start - ScoreModel.CABIN_CREW;
+		if (cabinSlots == 0) {
+			return -1;
+		}
+		int slot = start + ScoreModel.CABIN_CREW + random.nextInt(cabinSlots);
+		return model.get(slot) >= 0 ? slot : -1;
+	}
+
+	/*
+	 * Whether the resource could be put in the slot without double booking it or leaving the flight short of crew
+	 */
+	private boolean canTake(int slot, int id, int flight) {
+		int start = model.slotStart[flight];
+		int kind = Math.min(slot - start, ScoreModel.CABIN_CREW);
+		if (id < 0 || id == model.get(slot)) {
+			return false;
+		}
+		if (kind == ScoreModel.AIRCRAFT) {
+			if (model.cabinCrewRequiredBy(id) > model.cabinCrewAllocatedTo(flight) && model.isComplete(flight)) {
+				return false;
+			}
+		} else {
+			if ((kind == ScoreModel.CABIN_CREW) != (model.crew[id] instanceof CabinCrew)) {
+				return false;
+			}
+			for (int s = start + ScoreModel.CAPTAIN; s < model.slotStart[flight + 1]; s++) {
+				if (model.get(s) == id) {
+					return false;
+				}
+			}
+		}
+		return availability.isFreeInAnyOrder(resourceOf(slot, id), model.departureOf(flight), model.landingOf(flight));
+	}
+
+	private Object resourceOf(int slot, int id) {
+		int kind = slot - model.slotStart[model.flightOf(slot)];
+		return kind == ScoreModel.AIRCRAFT ? model.aircraft[id] : model.crew[id];
+	}
+
+	/*
+	 * Changes a slot as part of the move being tried, noting the old value so that the move
+	 * can be taken back and the best allocation recovered
+	 */
+	private long change(int slot, int id) {
+		moveSlots[moveLength] = slot;
+		moveOld[moveLength++] = model.get(slot);
+		return apply(slot, id, true);
+	}
+
+	/*
+	 * Takes back the move being tried. If nothing else has been journalled since the mark,
+	 * its journal entries are simply dropped
+	 */
+	private void undo(int mark) {
+		boolean dropEntries = mark >= 0 && bestSlots == null && journal.size() == mark + moveLength;
+		for (int i = moveLength - 1; i >= 0; i--) {
+			if (dropEntries) {
+				journal.remove(journal.size() - 1);
+			}
+			apply(moveSlots[i], moveOld[i], !dropEntries);
+		}
+		moveLength = 0;
+	}
+
+	/*
+	 * Changes a slot in the model and the availability index, journalling the old value if asked to
+	 */
+	private long apply(int slot, int id, boolean journalled) {
+		int flight = model.flightOf(slot);
+		int old = model.get(slot);
+		if (old >= 0) {
+			availability.release(resourceOf(slot, old), model.departureOf(flight), model.landingOf(flight));
+		}
+		if (id >= 0) {
+			availability.book(resourceOf(slot, id), model.departureOf(flight), model.landingOf(flight));
+		}
+		if (journalled && bestSlots == null) {
+			journal.add(new int[] { slot, old });
+			if (journal.size() > model.flightCount()) {
+				//the journal has grown longer than a copy of the best allocation would be, so make the copy
+				bestSlots = bestFromJournal();
+				journal.clear();
+			}
+		}
+		return model.set(slot, id);
+	}
+
+	private int[] bestFromJournal() {
+		int[] slots = model.snapshot();
+		for (int i = journal.size() - 1; i >= 0; i--) {
+			slots[journal.get(i)[0]] = journal.get(i)[1];
+		}
+		return slots;
+	}
+
+	private void newBest() {
+		bestScore = model.getScore();
+		bestSlots = null;
+		journal.clear();
+	}
+}
@@ -0,0 +1,66 @@
+package solution;
+
+/**
+ * A SchedulerProgress is a snapshot of how far a run of the Scheduler has got.
+ * Snapshots are immutable, so they can be read from any thread while the schedule is still being generated
+ */
+public class SchedulerProgress {
+
+	private final int allocated;
+	private final int remaining;
+	private final long elapsedNanos;
+	private final boolean finished;
+
+	SchedulerProgress(int allocated, int remaining, long elapsedNanos, boolean finished) {
+		this.allocated = allocated;
+		this.remaining = remaining;
+		this.elapsedNanos = elapsedNanos;
+		this.finished = finished;
+	}
+
+	/**
+	 * Returns the number of flights whose allocation has been completed so far
+	 * @return the number of flights whose allocation has been completed so far
+	 */
+	public int getAllocated() {
+		return allocated;
+	}
+
+	/**
+	 * Returns the number of flights the scheduler has not yet tried to allocate
+	 * @return the number of flights the scheduler has not yet tried to allocate
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * Returns how long the run has taken so far, in milliseconds
+	 * @return how long the run has taken so far, in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1_000_000;
+	}
+
+	/**
+	 * Returns the rate at which flights have been allocated since the run started
+	 * @return the number of flights allocated per second
+	 */
+	public double getFlightsPerSecond() {
+		return elapsedNanos == 0 ? 0 : allocated * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns whether the run has ended, either because every flight was tried or because it was stopped
+	 * @return true if the run has ended
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d allocated, %d remaining, %.1f flights/s after %d ms%s",
+				allocated, remaining, getFlightsPerSecond(), getElapsedMillis(), finished ? " (finished)" : "");
+	}
+}
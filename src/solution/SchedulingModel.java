@@ -0,0 +1,373 @@
+package solution;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.FlightInfo;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.Pilot;
+import baseclasses.Pilot.Rank;
+import baseclasses.Route;
+import baseclasses.Utilities;
+
+/**
+ * The SchedulingModel is the scheduler's compiled copy of the aircraft and crew, built once per run of generateSchedule().
+ * Airports, type codes, aircraft and crew are each given dense int ids, and everything the scheduler filters on is held
+ * in primitive arrays indexed by them, so choosing a plane or crew member compares ints rather than strings.
+ * Aircraft and crew share one id space, aircraft first, so per-resource state can be held in arrays over it.
+ * Sets of resources are bitsets over the same ids: the crew rated for each type and the crew based at each place
+ * are held once, so a candidate pool is the AND of a few of them.
+ *
+ * Airport codes and airport names share one set of place ids, so two places have the same id exactly when
+ * their strings are equal. Every place is given its id when the model is built, after which the model never changes,
+ * so it can be shared by schedulers running at the same time
+ */
+class SchedulingModel {
+
+	private final Map<String, Integer> places = new HashMap<>();
+	private final Map<String, Integer> types = new HashMap<>();
+	private final Map<Object, Integer> ids = new IdentityHashMap<>();
+
+	final Object[] resources;
+	final int aircraftCount;
+
+	//by aircraft id
+	final int[] aircraftType;
+	final int[] seats;
+	final int[] cabinCrewRequired;
+	final int[] startingPosition;
+
+	//by resource id, for crew only
+	final int[] homeBase;
+	final Rank[] rank;
+
+	//the number of longs in a bitset over every resource id, the crew with each type rating, and the crew based at each place
+	final int words;
+	private final long[][] rated;
+	private final long[][] based;
+	private final long[] nobody;
+
+	SchedulingModel(List<Aircraft> aircraft, List<Pilot> pilots, List<CabinCrew> cabinCrew, List<Route> routes) {
+
+		aircraftCount = aircraft.size();
+		resources = new Object[aircraftCount + pilots.size() + cabinCrew.size()];
+		int id = 0;
+		for (Aircraft plane : aircraft) {
+			resources[id++] = plane;
+		}
+		for (Pilot pilot : pilots) {
+			resources[id++] = pilot;
+		}
+		for (CabinCrew crew : cabinCrew) {
+			resources[id++] = crew;
+		}
+		for (int r = 0; r < resources.length; r++) {
+			ids.putIfAbsent(resources[r], r);
+		}
+
+		aircraftType = new int[aircraftCount];
+		seats = new int[aircraftCount];
+		cabinCrewRequired = new int[aircraftCount];
+		startingPosition = new int[aircraftCount];
+		for (int a = 0; a < aircraftCount; a++) {
+			Aircraft plane = aircraft.get(a);
+			aircraftType[a] = typeOf(plane.getTypeCode());
+			seats[a] = plane.getSeats();
+			cabinCrewRequired[a] = plane.getCabinCrewRequired();
+			startingPosition[a] = placeOf(plane.getStartingPosition());
+		}
+
+		homeBase = new int[resources.length];
+		rank = new Rank[resources.length];
+		for (int c = aircraftCount; c < resources.length; c++) {
+			Crew crew = (Crew) resources[c];
+			homeBase[c] = placeOf(crew.getHomeBase());
+			rank[c] = crew instanceof Pilot ? ((Pilot) crew).getRank() : null;
+			for (String type : crew.getTypeRatings()) {
+				typeOf(type);
+			}
+		}
+
+		for (Route route : routes) {
+			placeOf(route.getDepartureAirportCode());
+			placeOf(route.getDepartureAirport());
+			placeOf(route.getArrivalAirportCode());
+			placeOf(route.getArrivalAirport());
+		}
+
+		words = (resources.length + 63) >>> 6;
+		nobody = new long[words];
+		rated = new long[types.size()][words];
+		based = new long[places.size()][];
+		for (int c = aircraftCount; c < resources.length; c++) {
+			for (String type : ((Crew) resources[c]).getTypeRatings()) {
+				add(rated[types.get(type)], c);
+			}
+			if (homeBase[c] >= 0) {
+				if (based[homeBase[c]] == null) {
+					based[homeBase[c]] = new long[words];
+				}
+				add(based[homeBase[c]], c);
+			}
+		}
+	}
+
+	private static void add(long[] set, int id) {
+		set[id >>> 6] |= 1L << id;
+	}
+
+	/**
+	 * Returns the id of an aircraft or crew member, or -1 if it isn't in the model
+	 */
+	int idOf(Object resource) {
+		Integer id = ids.get(resource);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the number of place ids
+	 */
+	int placeCount() {
+		return places.size();
+	}
+
+	/**
+	 * Returns the id of an airport code or name, or -1 if no aircraft, crew member or route mentions it
+	 */
+	int placeIdOf(String place) {
+		Integer id = place == null ? null : places.get(place);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the id of an aircraft type code, or -1 if no aircraft or crew member mentions it
+	 */
+	int typeIdOf(String type) {
+		Integer id = type == null ? null : types.get(type);
+		return id == null ? -1 : id;
+	}
+
+	private int placeOf(String place) {
+		if (place == null) {
+			return -1;
+		}
+		Integer id = places.get(place);
+		if (id == null) {
+			id = places.size();
+			places.put(place, id);
+		}
+		return id;
+	}
+
+	private int typeOf(String type) {
+		Integer id = types.get(type);
+		if (id == null) {
+			id = types.size();
+			types.put(type, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Compiles the flights of a schedule, in the order given. The flights must come from the routes the model was built with
+	 * @param flights the flights to compile
+	 * @param passengers the passenger number forecasts
+	 * @param forecastDate the date forecasts are looked up for
+	 */
+	Flights compile(List<FlightInfo> flights, IPassengerNumbersDAO passengers, LocalDate forecastDate) {
+		return new Flights(flights, passengers, forecastDate);
+	}
+
+	/**
+	 * Groups a subset of the aircraft and crew into the pools the scheduler picks from
+	 * @param aircraft the aircraft that may be chosen, in the order to try them
+	 * @param pilots the pilots that may be chosen, in the order to try them
+	 * @param cabinCrew the cabin crew that may be chosen, in the order to try them
+	 */
+	Pools pools(List<Aircraft> aircraft, List<Pilot> pilots, List<CabinCrew> cabinCrew) {
+		return new Pools(aircraft, pilots, cabinCrew);
+	}
+
+	/**
+	 * The flights of one schedule, each given an id by its position, with the times as epoch seconds
+	 */
+	class Flights {
+
+		private final Map<FlightInfo, Integer> flightIds = new IdentityHashMap<>();
+
+		final FlightInfo[] flights;
+		final long[] departures;
+		final long[] landings;
+		final int[] departureCode;
+		final int[] arrivalCode;
+		final int[] departureAirport;
+		final int[] arrivalAirport;
+		//by the departure airport's name, which is what the scheduler's rest rule has always looked at
+		final boolean[] departsFromUk;
+		final int[] demand;
+
+		private Flights(List<FlightInfo> list, IPassengerNumbersDAO passengers, LocalDate forecastDate) {
+			int count = list.size();
+			flights = list.toArray(new FlightInfo[count]);
+			departures = new long[count];
+			landings = new long[count];
+			departureCode = new int[count];
+			arrivalCode = new int[count];
+			departureAirport = new int[count];
+			arrivalAirport = new int[count];
+			departsFromUk = new boolean[count];
+			int[] flightNumbers = new int[count];
+			LocalDate[] forecastDates = new LocalDate[count];
+			for (int f = 0; f < count; f++) {
+				FlightInfo flight = flights[f];
+				flightIds.put(flight, f);
+				departures[f] = AvailabilityIndex.toSeconds(flight.getDepartureDateTime());
+				landings[f] = AvailabilityIndex.toSeconds(flight.getLandingDateTime());
+				departureCode[f] = placeIdOf(flight.getFlight().getDepartureAirportCode());
+				arrivalCode[f] = placeIdOf(flight.getFlight().getArrivalAirportCode());
+				departureAirport[f] = placeIdOf(flight.getFlight().getDepartureAirport());
+				arrivalAirport[f] = placeIdOf(flight.getFlight().getArrivalAirport());
+				departsFromUk[f] = Utilities.airportIsInUK(flight.getFlight().getDepartureAirport());
+				flightNumbers[f] = flight.getFlight().getFlightNumber();
+				forecastDates[f] = forecastDate;
+			}
+			//every flight's demand in one batch, rather than a lookup per flight, which matters when the forecasts are in a live database
+			demand = PassengerNumbersDAO.getPassengerNumbersFor(passengers, flightNumbers, forecastDates);
+		}
+
+		/**
+		 * Returns the id of a flight, or -1 if it isn't one of these
+		 */
+		int idOf(FlightInfo flight) {
+			Integer id = flightIds.get(flight);
+			return id == null ? -1 : id;
+		}
+	}
+
+	/**
+	 * The aircraft and crew one scheduler may pick from. The crew are held as one bitset per rank, plus one for the
+	 * cabin crew, and narrowed to a home base and type rating by ANDing them with the model's bitsets.
+	 * Crew come out of a bitset in id order, which is the order they were loaded in
+	 */
+	class Pools {
+
+		final int[] aircraft;
+		final int[] aircraftBySeats;
+		private final int[] seatCounts;
+
+		private final long[][] pilotsByRank = new long[Rank.values().length][words];
+		private final long[] cabinCrew = new long[words];
+
+		private Pools(List<Aircraft> planes, List<Pilot> pilots, List<CabinCrew> cabinCrew) {
+
+			aircraft = new int[planes.size()];
+			for (int i = 0; i < aircraft.length; i++) {
+				aircraft[i] = idOf(planes.get(i));
+			}
+			//a stable sort, so aircraft with the same number of seats stay in the order they were given, as in AircraftDAO
+			Integer[] bySeats = new Integer[aircraft.length];
+			for (int i = 0; i < bySeats.length; i++) {
+				bySeats[i] = aircraft[i];
+			}
+			Arrays.sort(bySeats, (a, b) -> Integer.compare(seats[a], seats[b]));
+			aircraftBySeats = new int[bySeats.length];
+			seatCounts = new int[bySeats.length];
+			for (int i = 0; i < bySeats.length; i++) {
+				aircraftBySeats[i] = bySeats[i];
+				seatCounts[i] = seats[bySeats[i]];
+			}
+
+			for (Pilot pilot : pilots) {
+				if (pilot.getRank() != null) {
+					add(pilotsByRank[pilot.getRank().ordinal()], idOf(pilot));
+				}
+			}
+			for (CabinCrew crew : cabinCrew) {
+				add(this.cabinCrew, idOf(crew));
+			}
+		}
+
+		/**
+		 * Returns the position in aircraftBySeats of the first aircraft with at least this many seats
+		 */
+		int ceilingIndex(int seats) {
+			int low = 0;
+			int high = seatCounts.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (seatCounts[mid] < seats) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Writes the pilots of the rank into the bitset, and returns it
+		 */
+		long[] pilots(Rank r, long[] into) {
+			return select(pilotsByRank[r.ordinal()], null, null, into);
+		}
+
+		/**
+		 * Writes the pilots of the rank with a rating for the type into the bitset, and returns it
+		 */
+		long[] pilots(Rank r, int type, long[] into) {
+			return select(pilotsByRank[r.ordinal()], null, rated[type], into);
+		}
+
+		/**
+		 * Writes the pilots of the rank, based at the place, with a rating for the type into the bitset, and returns it
+		 */
+		long[] pilots(Rank r, int homeBase, int type, long[] into) {
+			return select(pilotsByRank[r.ordinal()], basedAt(homeBase), rated[type], into);
+		}
+
+		/**
+		 * Writes the cabin crew into the bitset, and returns it
+		 */
+		long[] cabinCrew(long[] into) {
+			return select(cabinCrew, null, null, into);
+		}
+
+		/**
+		 * Writes the cabin crew with a rating for the type into the bitset, and returns it
+		 */
+		long[] cabinCrew(int type, long[] into) {
+			return select(cabinCrew, null, rated[type], into);
+		}
+
+		/**
+		 * Writes the cabin crew based at the place, with a rating for the type, into the bitset, and returns it
+		 */
+		long[] cabinCrew(int homeBase, int type, long[] into) {
+			return select(cabinCrew, basedAt(homeBase), rated[type], into);
+		}
+
+		private long[] basedAt(int place) {
+			return place < 0 || based[place] == null ? nobody : based[place];
+		}
+
+		private long[] select(long[] members, long[] base, long[] type, long[] into) {
+			for (int w = 0; w < words; w++) {
+				long word = members[w];
+				if (base != null) {
+					word &= base[w];
+				}
+				if (type != null) {
+					word &= type[w];
+				}
+				into[w] = word;
+			}
+			return into;
+		}
+	}
+}
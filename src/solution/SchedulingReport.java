@@ -0,0 +1,102 @@
+package solution;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.FlightInfo;
+
+import solution.FlightAllocationResult.Reason;
+import solution.FlightAllocationResult.Status;
+
+/**
+ * A SchedulingReport collects the result of every flight the Scheduler tried to allocate in one run,
+ * in the order it tried them, so that the flights it couldn't allocate, and why, can be looked at afterwards.
+ * A flight tried more than once keeps every result, but only its latest counts as how the flight ended up
+ */
+public class SchedulingReport {
+
+	private final List<FlightAllocationResult> results = new ArrayList<>();
+	//the latest result of each flight, which are the ones counted
+	private final Map<FlightInfo, FlightAllocationResult> latest = new IdentityHashMap<>();
+	private final Map<Status, Integer> statusCounts = new EnumMap<>(Status.class);
+	private final Map<Reason, Integer> reasonCounts = new EnumMap<>(Reason.class);
+
+	void add(FlightAllocationResult result) {
+		results.add(result);
+		FlightAllocationResult previous = latest.put(result.getFlight(), result);
+		if (previous != null) {
+			count(previous, -1);
+		}
+		count(result, 1);
+	}
+
+	private void count(FlightAllocationResult result, int change) {
+		statusCounts.merge(result.getStatus(), change, Integer::sum);
+		for (Reason reason : result.getReasons()) {
+			reasonCounts.merge(reason, change, Integer::sum);
+		}
+	}
+
+	/**
+	 * Returns the result of every flight tried, in the order they were tried.
+	 * A flight that was tried more than once, such as one a split schedule had to allocate again, appears each time
+	 * @return the result of every flight tried
+	 */
+	public List<FlightAllocationResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Returns the result of every flight that didn't end up fully allocated
+	 * @return the latest result of each flight, where it isn't ALLOCATED, in the order they were added
+	 */
+	public List<FlightAllocationResult> getFailures() {
+		List<FlightAllocationResult> failures = new ArrayList<>();
+		for (FlightAllocationResult result : results) {
+			if (result.getStatus() != Status.ALLOCATED && latest.get(result.getFlight()) == result) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Returns the number of flights whose latest result has the given status
+	 * @param status the status to count
+	 * @return the number of flights with the status
+	 */
+	public int countOf(Status status) {
+		return statusCounts.getOrDefault(status, 0);
+	}
+
+	/**
+	 * Returns the number of flights whose latest result gives the reason
+	 * @param reason the reason to count
+	 * @return the number of flights giving the reason
+	 */
+	public int countOf(Reason reason) {
+		return reasonCounts.getOrDefault(reason, 0);
+	}
+
+	@Override
+	public String toString() {
+		Map<Status, Integer> statuses = withoutZeros(statusCounts);
+		Map<Reason, Integer> reasons = withoutZeros(reasonCounts);
+		return latest.size() + " flights tried: " + statuses + (reasons.isEmpty() ? "" : ", missing " + reasons);
+	}
+
+	//a count drops to zero when every flight it counted is tried again with another result
+	private static <K extends Enum<K>> Map<K, Integer> withoutZeros(Map<K, Integer> counts) {
+		Map<K, Integer> nonZero = new LinkedHashMap<>();
+		for (Map.Entry<K, Integer> count : counts.entrySet()) {
+			if (count.getValue() != 0) {
+				nonZero.put(count.getKey(), count.getValue());
+			}
+		}
+		return nonZero;
+	}
+}
@@ -0,0 +1,722 @@
+package solution;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Pilot.Rank;
+import baseclasses.Schedule;
+import baseclasses.Utilities;
+
+/**
+ * The ScoreModel holds an allocation of aircraft and crew to flights as plain int arrays, along with
+ * every aircraft's and crew member's flights in the order QualityScoreCalculator sees them, and keeps
+ * the quality score of the allocation up to date as single slots are changed.
+ * Changing a slot only re-scores the neighbouring flights of the resources involved and the weeks and
+ * month the flight falls in, so it costs a handful of operations rather than a pass over the schedule.
+ *
+ * Every flight has a run of slots: its aircraft, its captain, its first officer, then its cabin crew.
+ * Aircraft are numbered by their position in the aircraft list and crew by their position in the crew
+ * list, and an empty slot holds -1. The points agree exactly with QualityScoreCalculator, including the
+ * places where its rules behave oddly, for example a pilot's flights are ordered as all of their flights
+ * as captain followed by all of their flights as first officer
+ */
+class ScoreModel {
+
+	static final int AIRCRAFT = 0;
+	static final int CAPTAIN = 1;
+	static final int FIRST_OFFICER = 2;
+	static final int CABIN_CREW = 3;
+
+	private static final long MINUTE = 60;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long WEEK = 7 * 24 * HOUR;
+
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+
+	//the flights, sorted by departure
+	final FlightInfo[] flights;
+	private final long[] departures;
+	private final long[] landings;
+	private final int[] departureAirports;
+	private final int[] arrivalAirports;
+	private final boolean[] departsUK;
+	private final boolean[] arrivesUK;
+	private final int[] demand;
+	private final long[] durations;
+	private final int[] months;
+	private final long longestDuration;
+
+	//slotStart[f] is the first slot of flight f, slotStart[f + 1] is one past its last
+	final int[] slotStart;
+	private final int[] slotFlights;
+	private final int[] slots;
+
+	final Aircraft[] aircraft;
+	private final int[] seats;
+	private final int[] cabinCrewRequired;
+	private final int[] aircraftTypes;
+
+	final Crew[] crew;
+	private final int[] homeBases;
+	private final Rank[] ranks;
+	private final boolean[] qualified;
+	private final int typeCount;
+
+	private final Map<Object, Integer> ids = new IdentityHashMap<>();
+
+	private final int[][] aircraftTimelines;
+	private final int[] aircraftTimelineSizes;
+	//crew timelines are [crew][role]: role 0 holds flights as captain or cabin crew, role 1 as first officer
+	private final int[][][] crewTimelines;
+	private final int[][] crewTimelineSizes;
+
+	private final long[] weekStarts;
+	private final boolean[] unrestedWeeks;
+	private final long[] monthStarts;
+	private final long[] monthEnds;
+	private final long[] monthSeconds;
+
+	private final boolean[] complete;
+	private int incomplete;
+	private long score = 0;
+
+	/**
+	 * Creates a model of the given flights with nothing allocated to them
+	 * @param flights every flight in the schedule
+	 * @param allAircraft every aircraft that may be allocated
+	 * @param allCrew every crew member that may be allocated
+	 * @param passengers the forecasts used to score aircraft capacity
+	 * @param startDate the start date of the schedule
+	 * @param endDate the end date of the schedule
+	 * @param cabinCrewSlots the number of cabin crew slots to give each flight, in the same order as flights
+	 */
+	ScoreModel(List<FlightInfo> flights, List<Aircraft> allAircraft, List<Crew> allCrew, IPassengerNumbersDAO passengers,
+			LocalDate startDate, LocalDate endDate, int[] cabinCrewSlots) {
+
+		int n = flights.size();
+		this.flights = flights.toArray(new FlightInfo[n]);
+		this.startDate = startDate;
+		this.endDate = endDate;
+
+		Map<String, Integer> airports = new HashMap<>();
+		Map<String, Integer> types = new HashMap<>();
+
+		departures = new long[n];
+		landings = new long[n];
+		departureAirports = new int[n];
+		arrivalAirports = new int[n];
+		departsUK = new boolean[n];
+		arrivesUK = new boolean[n];
+		durations = new long[n];
+		months = new int[n];
+		int[] flightNumbers = new int[n];
+		LocalDate[] flightDates = new LocalDate[n];
+		long longest = 0;
+		for (int f = 0; f < n; f++) {
+			FlightInfo flight = this.flights[f];
+			departures[f] = AvailabilityIndex.toSeconds(flight.getDepartureDateTime());
+			landings[f] = AvailabilityIndex.toSeconds(flight.getLandingDateTime());
+			departureAirports[f] = idOf(airports, flight.getFlight().getDepartureAirportCode());
+			arrivalAirports[f] = idOf(airports, flight.getFlight().getArrivalAirportCode());
+			departsUK[f] = Utilities.airportIsInUK(flight.getFlight().getDepartureAirportCode());
+			arrivesUK[f] = Utilities.airportIsInUK(flight.getFlight().getArrivalAirportCode());
+			flightNumbers[f] = flight.getFlight().getFlightNumber();
+			flightDates[f] = flight.getDepartureDateTime().toLocalDate();
+			durations[f] = flight.getFlight().getDuration().getSeconds();
+			longest = Math.max(longest, landings[f] - departures[f]);
+		}
+		longestDuration = longest;
+		demand = PassengerNumbersDAO.getPassengerNumbersFor(passengers, flightNumbers, flightDates);
+
+		slotStart = new int[n + 1];
+		for (int f = 0; f < n; f++) {
+			slotStart[f + 1] = slotStart[f] + CABIN_CREW + cabinCrewSlots[f];
+		}
+		slotFlights = new int[slotStart[n]];
+		for (int f = 0; f < n; f++) {
+			Arrays.fill(slotFlights, slotStart[f], slotStart[f + 1], f);
+		}
+		slots = new int[slotStart[n]];
+		Arrays.fill(slots, -1);
+
+		aircraft = allAircraft.toArray(new Aircraft[allAircraft.size()]);
+		seats = new int[aircraft.length];
+		cabinCrewRequired = new int[aircraft.length];
+		aircraftTypes = new int[aircraft.length];
+		for (int a = 0; a < aircraft.length; a++) {
+			ids.putIfAbsent(aircraft[a], a);
+			seats[a] = aircraft[a].getSeats();
+			cabinCrewRequired[a] = aircraft[a].getCabinCrewRequired();
+			aircraftTypes[a] = idOf(types, aircraft[a].getTypeCode());
+		}
+		typeCount = types.size();
+
+		crew = allCrew.toArray(new Crew[allCrew.size()]);
+		homeBases = new int[crew.length];
+		ranks = new Rank[crew.length];
+		qualified = new boolean[crew.length * typeCount];
+		for (int c = 0; c < crew.length; c++) {
+			ids.putIfAbsent(crew[c], c);
+			homeBases[c] = idOf(airports, crew[c].getHomeBase());
+			ranks[c] = crew[c] instanceof Pilot ? ((Pilot) crew[c]).getRank() : null;
+			for (Map.Entry<String, Integer> type : types.entrySet()) {
+				qualified[c * typeCount + type.getValue()] = crew[c].isQualifiedFor(type.getKey());
+			}
+		}
+
+		aircraftTimelines = new int[aircraft.length][];
+		aircraftTimelineSizes = new int[aircraft.length];
+		for (int a = 0; a < aircraft.length; a++) {
+			aircraftTimelines[a] = new int[8];
+		}
+		crewTimelines = new int[crew.length][2][];
+		crewTimelineSizes = new int[crew.length][2];
+		for (int c = 0; c < crew.length; c++) {
+			crewTimelines[c][0] = new int[8];
+			crewTimelines[c][1] = new int[8];
+		}
+
+		//the same windows QualityScoreCalculator's weekly and monthly rules step through
+		LocalDateTime end = endDate.atTime(LocalTime.MIDNIGHT);
+		List<Long> weeks = new ArrayList<>();
+		for (LocalDateTime week = startDate.atTime(LocalTime.MIDNIGHT); week.isBefore(end); week = week.plusDays(7)) {
+			weeks.add(AvailabilityIndex.toSeconds(week));
+		}
+		weekStarts = weeks.stream().mapToLong(Long::longValue).toArray();
+		unrestedWeeks = new boolean[crew.length * weekStarts.length];
+
+		List<LocalDateTime> monthList = new ArrayList<>();
+		for (LocalDateTime month = startDate.atTime(LocalTime.MIDNIGHT); month.isBefore(end); month = month.plusMonths(1)) {
+			monthList.add(month);
+		}
+		monthStarts = new long[monthList.size()];
+		monthEnds = new long[monthList.size()];
+		for (int m = 0; m < monthStarts.length; m++) {
+			monthStarts[m] = AvailabilityIndex.toSeconds(monthList.get(m));
+			monthEnds[m] = AvailabilityIndex.toSeconds(monthList.get(m).plusMonths(1));
+		}
+		monthSeconds = new long[crew.length * monthStarts.length];
+		for (int f = 0; f < n; f++) {
+			months[f] = -1;
+			for (int m = 0; m < monthStarts.length; m++) {
+				if (departures[f] > monthStarts[m] && landings[f] < monthEnds[m]) {
+					months[f] = m;
+				}
+			}
+		}
+
+		//a crew member with no flights at all has a long break every week, so the weekly points start at nothing
+		complete = new boolean[n];
+		incomplete = n;
+	}
+
+	private static int idOf(Map<String, Integer> ids, String key) {
+		return ids.computeIfAbsent(key, k -> ids.size());
+	}
+
+	/**
+	 * Returns the number of the given aircraft or crew member, or -1 if it is not in the model
+	 */
+	int idOf(Object resource) {
+		Integer id = ids.get(resource);
+		return id == null ? -1 : id;
+	}
+
+	int flightCount() {
+		return flights.length;
+	}
+
+	int flightOf(int slot) {
+		return slotFlights[slot];
+	}
+
+	int get(int slot) {
+		return slots[slot];
+	}
+
+	long departureOf(int flight) {
+		return departures[flight];
+	}
+
+	long landingOf(int flight) {
+		return landings[flight];
+	}
+
+	int cabinCrewRequiredBy(int aircraftId) {
+		return cabinCrewRequired[aircraftId];
+	}
+
+	int cabinCrewAllocatedTo(int flight) {
+		int allocated = 0;
+		for (int s = slotStart[flight] + CABIN_CREW; s < slotStart[flight + 1]; s++) {
+			if (slots[s] >= 0) {
+				allocated++;
+			}
+		}
+		return allocated;
+	}
+
+	/**
+	 * Returns the quality score of the current allocation, as QualityScoreCalculator would calculate it
+	 * once every flight is complete
+	 */
+	long getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns true if every flight has an aircraft, both pilots and enough cabin crew
+	 */
+	boolean isComplete() {
+		return incomplete == 0;
+	}
+
+	boolean isComplete(int flight) {
+		return complete[flight];
+	}
+
+	/**
+	 * Puts a resource in a slot, replacing whatever was there
+	 * @param slot the slot to change
+	 * @param resource the number of the aircraft or crew member, or -1 to empty the slot
+	 * @return the change in the score
+	 */
+	long set(int slot, int resource) {
+		int old = slots[slot];
+		if (old == resource) {
+			return 0;
+		}
+		long before = score;
+		int flight = slotFlights[slot];
+		int kind = Math.min(slot - slotStart[flight], CABIN_CREW);
+
+		boolean wasComplete = complete[flight];
+		if (wasComplete) {
+			score -= flightPoints(flight);
+		}
+
+		if (old >= 0) {
+			if (kind == AIRCRAFT) {
+				removeFromAircraft(old, flight);
+			} else {
+				removeFromCrew(old, kind == FIRST_OFFICER ? 1 : 0, flight);
+			}
+		}
+		slots[slot] = resource;
+		if (resource >= 0) {
+			if (kind == AIRCRAFT) {
+				addToAircraft(resource, flight);
+			} else {
+				addToCrew(resource, kind == FIRST_OFFICER ? 1 : 0, flight);
+			}
+		}
+
+		boolean nowComplete = isValid(flight);
+		complete[flight] = nowComplete;
+		if (nowComplete) {
+			score += flightPoints(flight);
+		}
+		if (wasComplete && !nowComplete) {
+			incomplete++;
+		} else if (!wasComplete && nowComplete) {
+			incomplete--;
+		}
+		return score - before;
+	}
+
+	/**
+	 * Copies the current allocation of every slot
+	 */
+	int[] snapshot() {
+		return slots.clone();
+	}
+
+	/**
+	 * Builds a new Schedule with the given allocation, completing every flight that is valid.
+	 * Flights are allocated in departure order, which is the order Schedule.hasConflict() accepts
+	 * any allocation that AvailabilityIndex.isFreeInAnyOrder() allows
+	 * @param routes the routes the flights were made from
+	 * @param allocation an allocation of every slot, as returned by snapshot()
+	 * @throws DoubleBookedException if the allocation double books an aircraft or crew member
+	 * @throws InvalidAllocationException if the schedule refuses to complete a valid flight
+	 */
+	Schedule toSchedule(IRouteDAO routes, int[] allocation) throws DoubleBookedException, InvalidAllocationException {
+
+		Schedule schedule = new Schedule(routes, startDate, endDate);
+		Map<String, Deque<FlightInfo>> matching = new HashMap<>();
+		for (FlightInfo flight : schedule.getRemainingAllocations()) {
+			matching.computeIfAbsent(keyOf(flight), k -> new ArrayDeque<>()).add(flight);
+		}
+
+		for (int f = 0; f < flights.length; f++) {
+			Deque<FlightInfo> same = matching.get(keyOf(flights[f]));
+			FlightInfo flight = same == null ? null : same.poll();
+			if (flight == null) {
+				continue;
+			}
+			int start = slotStart[f];
+			if (allocation[start + AIRCRAFT] >= 0) {
+				schedule.allocateAircraftTo(aircraft[allocation[start + AIRCRAFT]], flight);
+			}
+			if (allocation[start + CAPTAIN] >= 0) {
+				schedule.allocateCaptainTo((Pilot) crew[allocation[start + CAPTAIN]], flight);
+			}
+			if (allocation[start + FIRST_OFFICER] >= 0) {
+				schedule.allocateFirstOfficerTo((Pilot) crew[allocation[start + FIRST_OFFICER]], flight);
+			}
+			for (int s = start + CABIN_CREW; s < slotStart[f + 1]; s++) {
+				if (allocation[s] >= 0) {
+					schedule.allocateCabinCrewTo((CabinCrew) crew[allocation[s]], flight);
+				}
+			}
+			if (schedule.isValid(flight)) {
+				schedule.completeAllocationFor(flight);
+			}
+		}
+		return schedule;
+	}
+
+	private static String keyOf(FlightInfo flight) {
+		return flight.getFlight().getFlightNumber() + "@" + flight.getDepartureDateTime();
+	}
+
+	/*
+	 * The same test as Schedule.isValid()
+	 */
+	private boolean isValid(int flight) {
+		int start = slotStart[flight];
+		if (slots[start + AIRCRAFT] < 0 || slots[start + CAPTAIN] < 0 || slots[start + FIRST_OFFICER] < 0) {
+			return false;
+		}
+		int allocated = cabinCrewAllocatedTo(flight);
+		return allocated > 0 && allocated >= cabinCrewRequired[slots[start + AIRCRAFT]];
+	}
+
+	/*
+	 * Points for a single complete flight: aircraft capacity, pilots in the wrong seat and unqualified crew
+	 */
+	private long flightPoints(int flight) {
+		int start = slotStart[flight];
+		int plane = slots[start + AIRCRAFT];
+		long points = 0;
+
+		int passengers = demand[flight];
+		int available = seats[plane];
+		if (available < passengers) {
+			points += (passengers - available) * (departsUK[flight] ? 50 : 100);
+		} else if (available > passengers) {
+			points += available - passengers;
+		}
+
+		int captain = slots[start + CAPTAIN];
+		int firstOfficer = slots[start + FIRST_OFFICER];
+		if (ranks[captain] == Rank.FIRST_OFFICER) {
+			points += 50000;
+		}
+		if (ranks[firstOfficer] == Rank.CAPTAIN) {
+			points += 1000;
+		}
+
+		int type = aircraftTypes[plane];
+		for (int s = start + CAPTAIN; s < slotStart[flight + 1]; s++) {
+			if (slots[s] >= 0 && !qualified[slots[s] * typeCount + type]) {
+				points += 50000;
+			}
+		}
+		return points;
+	}
+
+	/*
+	 * Points between consecutive flights of an aircraft: short turnarounds and positioning
+	 */
+	private long aircraftPoints(int first, int second) {
+		long minutes = (departures[second] - landings[first]) / MINUTE;
+		long points = minutes < 15 ? 500 : minutes < 30 ? 100 : 0;
+		//QualityScoreCalculator's positioning rule counts the legs that do join up
+		if (arrivalAirports[first] == departureAirports[second]) {
+			points += 20000;
+		}
+		return points;
+	}
+
+	/*
+	 * Points between consecutive flights of a crew member: nightly rest, rest away from base,
+	 * and outbound and inbound legs without a matching return
+	 */
+	private long crewPoints(int member, int first, int second) {
+		long hours = (departures[second] - landings[first]) / HOUR;
+		long points = 0;
+
+		if (departsUK[second] && arrivesUK[first] && hours < 12) {
+			points += 20000;
+		}
+		if (departureAirports[second] != homeBases[member] && departsUK[second] && hours < 24) {
+			points += 500;
+		}
+		if (arrivalAirports[first] != homeBases[member] && arrivesUK[first] && hours < 24) {
+			points += 500;
+		}
+
+		long away = 0;
+		if (arrivalAirports[first] != departureAirports[second] || hours > 4) {
+			away = 1000 + (hours < 48 ? 5000 : 0);
+		}
+		if (!arrivesUK[first]) {
+			points += away;
+		}
+		if (!departsUK[second]) {
+			points += away;
+		}
+		return points;
+	}
+
+	private void addToAircraft(int plane, int flight) {
+		int[] timeline = aircraftTimelines[plane];
+		int size = aircraftTimelineSizes[plane];
+		int position = insertionPoint(timeline, size, flight);
+
+		int previous = position > 0 ? timeline[position - 1] : -1;
+		int next = position < size ? timeline[position] : -1;
+		if (previous >= 0 && next >= 0) {
+			score -= aircraftPoints(previous, next);
+		}
+		if (previous >= 0) {
+			score += aircraftPoints(previous, flight);
+		}
+		if (next >= 0) {
+			score += aircraftPoints(flight, next);
+		}
+
+		aircraftTimelines[plane] = insert(timeline, size, position, flight);
+		aircraftTimelineSizes[plane]++;
+	}
+
+	private void removeFromAircraft(int plane, int flight) {
+		int[] timeline = aircraftTimelines[plane];
+		int size = aircraftTimelineSizes[plane];
+		int position = Arrays.binarySearch(timeline, 0, size, flight);
+
+		int previous = position > 0 ? timeline[position - 1] : -1;
+		int next = position < size - 1 ? timeline[position + 1] : -1;
+		if (previous >= 0) {
+			score -= aircraftPoints(previous, flight);
+		}
+		if (next >= 0) {
+			score -= aircraftPoints(flight, next);
+		}
+		if (previous >= 0 && next >= 0) {
+			score += aircraftPoints(previous, next);
+		}
+
+		System.arraycopy(timeline, position + 1, timeline, position, size - position - 1);
+		aircraftTimelineSizes[plane]--;
+	}
+
+	private void addToCrew(int member, int role, int flight) {
+		int size = crewTimelineSizes[member][role];
+		int position = insertionPoint(crewTimelines[member][role], size, flight);
+
+		int previous = crewBefore(member, role, position);
+		int next = crewAt(member, role, position);
+		long before = windowPoints(member, flight);
+		if (previous >= 0 && next >= 0) {
+			score -= crewPoints(member, previous, next);
+		}
+		if (previous >= 0) {
+			score += crewPoints(member, previous, flight);
+		}
+		if (next >= 0) {
+			score += crewPoints(member, flight, next);
+		}
+
+		crewTimelines[member][role] = insert(crewTimelines[member][role], size, position, flight);
+		crewTimelineSizes[member][role]++;
+		if (months[flight] >= 0) {
+			monthSeconds[member * monthStarts.length + months[flight]] += durations[flight];
+		}
+		score += updateWindowPoints(member, flight) - before;
+	}
+
+	private void removeFromCrew(int member, int role, int flight) {
+		int[] timeline = crewTimelines[member][role];
+		int size = crewTimelineSizes[member][role];
+		int position = Arrays.binarySearch(timeline, 0, size, flight);
+
+		int previous = crewBefore(member, role, position);
+		int next = crewAt(member, role, position + 1);
+		long before = windowPoints(member, flight);
+		if (previous >= 0) {
+			score -= crewPoints(member, previous, flight);
+		}
+		if (next >= 0) {
+			score -= crewPoints(member, flight, next);
+		}
+		if (previous >= 0 && next >= 0) {
+			score += crewPoints(member, previous, next);
+		}
+
+		System.arraycopy(timeline, position + 1, timeline, position, size - position - 1);
+		crewTimelineSizes[member][role]--;
+		if (months[flight] >= 0) {
+			monthSeconds[member * monthStarts.length + months[flight]] -= durations[flight];
+		}
+		score += updateWindowPoints(member, flight) - before;
+	}
+
+	/*
+	 * The flight before a position in a crew member's timeline, carrying on from their captain
+	 * flights into their first officer flights the way Schedule.getCompletedAllocationsFor() does
+	 */
+	private int crewBefore(int member, int role, int position) {
+		if (position > 0) {
+			return crewTimelines[member][role][position - 1];
+		}
+		if (role == 1 && crewTimelineSizes[member][0] > 0) {
+			return crewTimelines[member][0][crewTimelineSizes[member][0] - 1];
+		}
+		return -1;
+	}
+
+	private int crewAt(int member, int role, int position) {
+		if (position < crewTimelineSizes[member][role]) {
+			return crewTimelines[member][role][position];
+		}
+		if (role == 0 && crewTimelineSizes[member][1] > 0) {
+			return crewTimelines[member][1][0];
+		}
+		return -1;
+	}
+
+	/*
+	 * The cached weekly and monthly points of a crew member for the windows a flight falls in
+	 */
+	private long windowPoints(int member, int flight) {
+		long points = 0;
+		int first = weekOf(departures[flight]);
+		int second = weekOf(landings[flight]);
+		if (first >= 0 && unrestedWeeks[member * weekStarts.length + first]) {
+			points += 10000;
+		}
+		if (second >= 0 && second != first && unrestedWeeks[member * weekStarts.length + second]) {
+			points += 10000;
+		}
+		if (months[flight] >= 0) {
+			points += monthlyPoints(monthSeconds[member * monthStarts.length + months[flight]]);
+		}
+		return points;
+	}
+
+	/*
+	 * Re-checks the weeks a flight falls in after it has been added or removed, and returns the new window points
+	 */
+	private long updateWindowPoints(int member, int flight) {
+		int first = weekOf(departures[flight]);
+		int second = weekOf(landings[flight]);
+		if (first >= 0) {
+			unrestedWeeks[member * weekStarts.length + first] = !hadLongBreak(member, first);
+		}
+		if (second >= 0 && second != first) {
+			unrestedWeeks[member * weekStarts.length + second] = !hadLongBreak(member, second);
+		}
+		return windowPoints(member, flight);
+	}
+
+	private static long monthlyPoints(long seconds) {
+		long over = seconds - 100 * HOUR;
+		return over > 0 ? 10 * (over / HOUR) : 0;
+	}
+
+	/*
+	 * The week whose open interval holds the time, or -1 if none does
+	 */
+	private int weekOf(long time) {
+		if (weekStarts.length == 0 || time <= weekStarts[0]) {
+			return -1;
+		}
+		int week = (int) Math.min((time - weekStarts[0]) / WEEK, weekStarts.length - 1);
+		return time > weekStarts[week] && time < weekStarts[week] + WEEK ? week : -1;
+	}
+
+	/*
+	 * Whether the crew member has a 36 hour gap in the week, walking their departure and landing times
+	 * in timeline order just as QualityScoreCalculator's weekly rule does
+	 */
+	private boolean hadLongBreak(int member, int week) {
+		long start = weekStarts[week];
+		long end = start + WEEK;
+		long previous = start;
+
+		for (int role = 0; role < 2; role++) {
+			int[] timeline = crewTimelines[member][role];
+			int size = crewTimelineSizes[member][role];
+			//nothing departing before start - longestDuration can still be in the air at the start of the week
+			for (int i = firstDepartingAfter(timeline, size, start - longestDuration); i < size && departures[timeline[i]] < end; i++) {
+				int flight = timeline[i];
+				if (departures[flight] > start) {
+					if ((departures[flight] - previous) / HOUR >= 36) {
+						return true;
+					}
+					previous = departures[flight];
+				}
+				if (landings[flight] > start && landings[flight] < end) {
+					if ((landings[flight] - previous) / HOUR >= 36) {
+						return true;
+					}
+					previous = landings[flight];
+				}
+			}
+		}
+		return (end - previous) / HOUR >= 36;
+	}
+
+	private int firstDepartingAfter(int[] timeline, int size, long time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (departures[timeline[mid]] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Flights are numbered in departure order, so a timeline sorted by flight number is sorted the way
+	 * Schedule.sort() leaves it, with ties in the order the flights were allocated
+	 */
+	private static int insertionPoint(int[] timeline, int size, int flight) {
+		int position = Arrays.binarySearch(timeline, 0, size, flight);
+		return position < 0 ? -position - 1 : position;
+	}
+
+	private static int[] insert(int[] timeline, int size, int position, int flight) {
+		if (size == timeline.length) {
+			timeline = Arrays.copyOf(timeline, size * 2);
+		}
+		System.arraycopy(timeline, position, timeline, position + 1, size - position);
+		timeline[position] = flight;
+		return timeline;
+	}
+
+}
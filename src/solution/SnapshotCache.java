@@ -0,0 +1,471 @@
+package solution;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import baseclasses.Aircraft;
+import baseclasses.Aircraft.Manufacturer;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Pilot.Rank;
+import baseclasses.Route;
+
+/**
+ * The SnapshotCache keeps a binary snapshot of everything loaded from each data file, so that the next time the
+ * same file is loaded it can be mapped back in rather than parsed or queried again.
+ * Each snapshot records the size, modification time and CRC32 of the file it was made from, and is only used
+ * while all three still match; otherwise the file is loaded as normal and the snapshot is replaced.
+ *
+ * A snapshot that can't be written is simply not used, so the cache never stops data from loading
+ */
+public class SnapshotCache {
+
+	private static final int MAGIC = 0x534E4150;
+	//bump whenever the layout of any snapshot changes
+	private static final int VERSION = 1;
+	//magic, version, kind, then the size, modification time and checksum of the data file
+	private static final int HEADER_BYTES = 4 + 4 + 1 + 8 + 8 + 8;
+
+	private static final byte AIRCRAFT = 1;
+	private static final byte CREW = 2;
+	private static final byte ROUTES = 3;
+	private static final byte PASSENGER_NUMBERS = 4;
+
+	private final Path directory;
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Creates a cache that keeps its snapshots in the given directory, creating it when the first snapshot is written
+	 * @param directory the directory to keep snapshots in
+	 */
+	public SnapshotCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Loads a CSV file of aircraft into the DAO, from its snapshot if it has an up to date one
+	 * @param aircraft the DAO to add the aircraft to
+	 * @param path A Path pointing to the file
+	 * @throws DataLoadingException if the file had to be loaded and could not be
+	 */
+	public void loadAircraftData(AircraftDAO aircraft, Path path) throws DataLoadingException {
+		Source source = source(path);
+		ByteBuffer snapshot = open(source, AIRCRAFT);
+		if (snapshot != null) {
+			try {
+				List<Aircraft> loaded = readAircraft(snapshot);
+				hits.incrementAndGet();
+				aircraft.addAll(loaded);
+				return;
+			} catch (RuntimeException e) {
+				//a damaged snapshot is just a miss
+			}
+		}
+		misses.incrementAndGet();
+		AircraftDAO loaded = new AircraftDAO();
+		loaded.loadAircraftData(path);
+		Strings strings = new Strings();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(body)) {
+			writeAircraft(out, strings, loaded.getAllAircraft());
+		} catch (IOException e) {
+			throw new DataLoadingException(e);
+		}
+		write(source, AIRCRAFT, strings, body);
+		aircraft.addAll(loaded);
+	}
+
+	/**
+	 * Loads a JSON file of crew into the DAO, from its snapshot if it has an up to date one
+	 * @param crew the DAO to add the crew to
+	 * @param path A Path pointing to the file
+	 * @throws DataLoadingException if the file had to be loaded and could not be
+	 */
+	public void loadCrewData(CrewDAO crew, Path path) throws DataLoadingException {
+		Source source = source(path);
+		ByteBuffer snapshot = open(source, CREW);
+		if (snapshot != null) {
+			try {
+				String[] table = readStrings(snapshot);
+				List<Pilot> pilots = new ArrayList<>();
+				for (int i = snapshot.getInt(); i > 0; i--) {
+					Pilot pilot = readCrew(snapshot, table, new Pilot());
+					int rank = snapshot.get();
+					pilot.setRank(rank < 0 ? null : Rank.values()[rank]);
+					pilots.add(pilot);
+				}
+				List<CabinCrew> cabinCrew = new ArrayList<>();
+				for (int i = snapshot.getInt(); i > 0; i--) {
+					cabinCrew.add(readCrew(snapshot, table, new CabinCrew()));
+				}
+				hits.incrementAndGet();
+				crew.addAll(pilots, cabinCrew);
+				return;
+			} catch (RuntimeException e) {
+				//a damaged snapshot is just a miss
+			}
+		}
+		misses.incrementAndGet();
+		CrewDAO loaded = new CrewDAO();
+		loaded.loadCrewData(path);
+		Strings strings = new Strings();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(body)) {
+			out.writeInt(loaded.getAllPilots().size());
+			for (Pilot pilot : loaded.getAllPilots()) {
+				writeCrew(out, strings, pilot);
+				out.writeByte(pilot.getRank() == null ? -1 : pilot.getRank().ordinal());
+			}
+			out.writeInt(loaded.getAllCabinCrew().size());
+			for (CabinCrew member : loaded.getAllCabinCrew()) {
+				writeCrew(out, strings, member);
+			}
+		} catch (IOException e) {
+			throw new DataLoadingException(e);
+		}
+		write(source, CREW, strings, body);
+		crew.addAll(loaded);
+	}
+
+	/**
+	 * Loads an XML file of routes into the DAO, from its snapshot if it has an up to date one
+	 * @param routes the DAO to add the routes to
+	 * @param path A Path pointing to the file
+	 * @throws DataLoadingException if the file had to be loaded and could not be
+	 */
+	public void loadRouteData(RouteDAO routes, Path path) throws DataLoadingException {
+		Source source = source(path);
+		ByteBuffer snapshot = open(source, ROUTES);
+		if (snapshot != null) {
+			try {
+				String[] table = readStrings(snapshot);
+				List<Route> loaded = new ArrayList<>();
+				for (int i = snapshot.getInt(); i > 0; i--) {
+					Route route = new Route();
+					route.setFlightNumber(snapshot.getInt());
+					route.setDayOfWeek(readString(snapshot, table));
+					route.setDepartureTime(readTime(snapshot));
+					route.setDepartureAirport(readString(snapshot, table));
+					route.setDepartureAirportCode(readString(snapshot, table));
+					route.setArrivalTime(readTime(snapshot));
+					route.setArrivalAirport(readString(snapshot, table));
+					route.setArrivalAirportCode(readString(snapshot, table));
+					long seconds = snapshot.getLong();
+					int nanos = snapshot.getInt();
+					route.setDuration(nanos < 0 ? null : Duration.ofSeconds(seconds, nanos));
+					loaded.add(route);
+				}
+				hits.incrementAndGet();
+				routes.addAll(loaded);
+				return;
+			} catch (RuntimeException e) {
+				//a damaged snapshot is just a miss
+			}
+		}
+		misses.incrementAndGet();
+		RouteDAO loaded = new RouteDAO();
+		loaded.loadRouteData(path);
+		Strings strings = new Strings();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(body)) {
+			out.writeInt(loaded.getAllRoutes().size());
+			for (Route route : loaded.getAllRoutes()) {
+				out.writeInt(route.getFlightNumber());
+				out.writeInt(strings.idOf(route.getDayOfWeek()));
+				writeTime(out, route.getDepartureTime());
+				out.writeInt(strings.idOf(route.getDepartureAirport()));
+				out.writeInt(strings.idOf(route.getDepartureAirportCode()));
+				writeTime(out, route.getArrivalTime());
+				out.writeInt(strings.idOf(route.getArrivalAirport()));
+				out.writeInt(strings.idOf(route.getArrivalAirportCode()));
+				Duration duration = route.getDuration();
+				out.writeLong(duration == null ? 0 : duration.getSeconds());
+				out.writeInt(duration == null ? -1 : duration.getNano());
+			}
+		} catch (IOException e) {
+			throw new DataLoadingException(e);
+		}
+		write(source, ROUTES, strings, body);
+		routes.addAll(loaded);
+	}
+
+	/**
+	 * Loads an SQLite database of passenger number forecasts into the DAO, from its snapshot if it has an up to date one
+	 * @param passengerNumbers the DAO to add the forecasts to
+	 * @param path A Path pointing to the database
+	 * @throws DataLoadingException if the database had to be loaded and could not be
+	 */
+	public void loadPassengerNumbersData(PassengerNumbersDAO passengerNumbers, Path path) throws DataLoadingException {
+		Source source = source(path);
+		ByteBuffer snapshot = open(source, PASSENGER_NUMBERS);
+		if (snapshot != null) {
+			try {
+				readStrings(snapshot);
+				PassengerNumbersDAO loaded = new PassengerNumbersDAO();
+				for (int i = snapshot.getInt(); i > 0; i--) {
+					loaded.addForecast(snapshot.getInt(), snapshot.getInt(), snapshot.getInt());
+				}
+				hits.incrementAndGet();
+				passengerNumbers.addAll(loaded);
+				return;
+			} catch (RuntimeException e) {
+				//a damaged snapshot is just a miss
+			}
+		}
+		misses.incrementAndGet();
+		PassengerNumbersDAO loaded = new PassengerNumbersDAO();
+		loaded.loadPassengerNumbersData(path);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(body)) {
+			out.writeInt(loaded.getNumberOfEntries());
+			loaded.forEachForecast((flightNumber, epochDay, passengers) -> {
+				try {
+					out.writeInt(flightNumber);
+					out.writeInt((int) epochDay);
+					out.writeInt(passengers);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		} catch (IOException | IllegalStateException e) {
+			throw new DataLoadingException(e);
+		}
+		write(source, PASSENGER_NUMBERS, new Strings(), body);
+		passengerNumbers.addAll(loaded);
+	}
+
+	/**
+	 * Returns the number of files loaded from a snapshot
+	 * @return the number of files loaded from a snapshot
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of files that had to be loaded because they had no up to date snapshot
+	 * @return the number of files loaded without a snapshot
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/*
+	 * Reads the size, modification time and checksum of a data file, which together decide whether a snapshot is up to date
+	 */
+	private Source source(Path path) throws DataLoadingException {
+		try {
+			Source source = new Source();
+			source.path = path;
+			source.size = Files.size(path);
+			source.modified = Files.getLastModifiedTime(path).toMillis();
+			CRC32 crc = new CRC32();
+			byte[] buffer = new byte[65536];
+			try (InputStream in = Files.newInputStream(path)) {
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					crc.update(buffer, 0, read);
+				}
+			}
+			source.checksum = crc.getValue();
+			return source;
+		} catch (IOException e) {
+			throw new DataLoadingException(e);
+		}
+	}
+
+	private Path snapshotOf(Path path) {
+		Path absolute = path.toAbsolutePath().normalize();
+		return directory.resolve(absolute.getFileName() + "-" + Integer.toHexString(absolute.toString().hashCode()) + ".snap");
+	}
+
+	/*
+	 * Maps in the snapshot of a data file, positioned after its header, or returns null if there isn't an up to date one
+	 */
+	private ByteBuffer open(Source source, byte kind) {
+		Path snapshot = snapshotOf(source.path);
+		if (!Files.isRegularFile(snapshot)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			//the header is read rather than mapped, so an out of date snapshot is never mapped, and can be replaced
+			//straight away even where a mapped file can't be, as on Windows
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || header.get() != kind
+					|| header.getLong() != source.size || header.getLong() != source.modified || header.getLong() != source.checksum) {
+				return null;
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, channel.size() - HEADER_BYTES);
+		} catch (IOException | BufferUnderflowException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Writes a snapshot to a temporary file and moves it into place, so a half written snapshot is never read
+	 */
+	private void write(Source source, byte kind, Strings strings, ByteArrayOutputStream body) {
+		Path snapshot = snapshotOf(source.path);
+		Path temporary = null;
+		try {
+			Files.createDirectories(directory);
+			temporary = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeByte(kind);
+				out.writeLong(source.size);
+				out.writeLong(source.modified);
+				out.writeLong(source.checksum);
+				out.writeInt(strings.list.size());
+				for (String string : strings.list) {
+					byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+				body.writeTo(out);
+			}
+			try {
+				Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				//a reader that catches the replace half done finds a damaged snapshot, which is just a miss
+				Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			//without a snapshot the file will just be loaded again next time
+			try {
+				if (temporary != null) {
+					Files.deleteIfExists(temporary);
+				}
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static void writeAircraft(DataOutputStream out, Strings strings, List<Aircraft> aircraft) throws IOException {
+		out.writeInt(aircraft.size());
+		for (Aircraft plane : aircraft) {
+			out.writeInt(strings.idOf(plane.getTailCode()));
+			out.writeInt(strings.idOf(plane.getTypeCode()));
+			out.writeByte(plane.getManufacturer() == null ? -1 : plane.getManufacturer().ordinal());
+			out.writeInt(strings.idOf(plane.getModel()));
+			out.writeInt(plane.getSeats());
+			out.writeInt(plane.getCabinCrewRequired());
+			out.writeInt(strings.idOf(plane.getStartingPosition()));
+		}
+	}
+
+	private static List<Aircraft> readAircraft(ByteBuffer snapshot) {
+		String[] table = readStrings(snapshot);
+		List<Aircraft> aircraft = new ArrayList<>();
+		for (int i = snapshot.getInt(); i > 0; i--) {
+			Aircraft plane = new Aircraft();
+			plane.setTailCode(readString(snapshot, table));
+			plane.setTypeCode(readString(snapshot, table));
+			int manufacturer = snapshot.get();
+			plane.setManufacturer(manufacturer < 0 ? null : Manufacturer.values()[manufacturer]);
+			plane.setModel(readString(snapshot, table));
+			plane.setSeats(snapshot.getInt());
+			plane.setCabinCrewRequired(snapshot.getInt());
+			plane.setStartingPosition(readString(snapshot, table));
+			aircraft.add(plane);
+		}
+		return aircraft;
+	}
+
+	private static void writeCrew(DataOutputStream out, Strings strings, Crew crew) throws IOException {
+		out.writeInt(strings.idOf(crew.getForename()));
+		out.writeInt(strings.idOf(crew.getSurname()));
+		out.writeInt(strings.idOf(crew.getHomeBase()));
+		List<String> typeRatings = crew.getTypeRatings();
+		out.writeInt(typeRatings.size());
+		for (String typeRating : typeRatings) {
+			out.writeInt(strings.idOf(typeRating));
+		}
+	}
+
+	private static <T extends Crew> T readCrew(ByteBuffer snapshot, String[] table, T crew) {
+		crew.setForename(readString(snapshot, table));
+		crew.setSurname(readString(snapshot, table));
+		crew.setHomeBase(readString(snapshot, table));
+		for (int i = snapshot.getInt(); i > 0; i--) {
+			crew.setQualifiedFor(readString(snapshot, table));
+		}
+		return crew;
+	}
+
+	private static void writeTime(DataOutputStream out, LocalTime time) throws IOException {
+		out.writeLong(time == null ? -1 : time.toNanoOfDay());
+	}
+
+	private static LocalTime readTime(ByteBuffer snapshot) {
+		long nanoOfDay = snapshot.getLong();
+		return nanoOfDay < 0 ? null : LocalTime.ofNanoOfDay(nanoOfDay);
+	}
+
+	private static String[] readStrings(ByteBuffer snapshot) {
+		String[] table = new String[snapshot.getInt()];
+		for (int i = 0; i < table.length; i++) {
+			byte[] bytes = new byte[snapshot.getInt()];
+			snapshot.get(bytes);
+			table[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return table;
+	}
+
+	private static String readString(ByteBuffer snapshot, String[] table) {
+		int id = snapshot.getInt();
+		return id < 0 ? null : table[id];
+	}
+
+	private static class Source {
+		Path path;
+		long size;
+		long modified;
+		long checksum;
+	}
+
+	/*
+	 * Gives each distinct string an id, so that airport codes, type codes and the like are stored once per snapshot
+	 */
+	private static class Strings {
+		final List<String> list = new ArrayList<>();
+		final Map<String, Integer> ids = new HashMap<>();
+
+		int idOf(String string) {
+			if (string == null) {
+				return -1;
+			}
+			Integer id = ids.get(string);
+			if (id == null) {
+				id = list.size();
+				ids.put(string, id);
+				list.add(string);
+			}
+			return id;
+		}
+	}
+}